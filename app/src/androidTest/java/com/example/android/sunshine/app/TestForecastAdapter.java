@@ -0,0 +1,58 @@
+package com.example.android.sunshine.app;
+
+import android.database.MatrixCursor;
+import android.test.AndroidTestCase;
+import android.view.View;
+import android.widget.AbsListView;
+
+public class TestForecastAdapter extends AndroidTestCase {
+
+    /*
+        The adapter has stable ids, which can't be turned on once ItemChoiceManager has
+        registered its observer.
+     */
+    public void testCreateAdapter() {
+        View emptyView = new View(getContext());
+        ForecastAdapter adapter = new ForecastAdapter(getContext(), null, emptyView,
+                AbsListView.CHOICE_MODE_SINGLE);
+
+        assertTrue(adapter.hasStableIds());
+        assertEquals(0, adapter.getItemCount());
+
+        adapter.swapCursor(null);
+        assertEquals(0, adapter.getItemCount());
+        assertEquals(View.VISIBLE, emptyView.getVisibility());
+    }
+
+    /*
+        A day inserted before the first one moves it down, it needs the layout of the other
+        days again.
+     */
+    public void testDiffFindsOldFirstRow() {
+        long day = 24 * 60 * 60 * 1000;
+        ForecastRow[] oldRows = createRows(2 * day, 3 * day);
+        ForecastRow[] newRows = createRows(day, 2 * day, 3 * day);
+
+        ForecastDiff diff = ForecastDiff.compute(oldRows, newRows);
+        assertTrue(diff.isFirstRowReplaced());
+        assertEquals(1, diff.getOldFirstRowPosition());
+
+        diff = ForecastDiff.compute(newRows, oldRows);
+        assertTrue(diff.isFirstRowReplaced());
+        assertEquals(-1, diff.getOldFirstRowPosition());
+    }
+
+    private ForecastRow[] createRows(long... dates) {
+        MatrixCursor cursor = new MatrixCursor(new String[] {"_id", "date", "short_desc",
+                "max", "min", "location_setting", "weather_id", "coord_lat", "coord_long"});
+        for (long date : dates) {
+            cursor.addRow(new Object[] {date, date, "Clear", 21.5, 12.0, "94043", 800,
+                    37.4, -122.1});
+        }
+        try {
+            return ForecastRow.fromCursor(getContext(), cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+}
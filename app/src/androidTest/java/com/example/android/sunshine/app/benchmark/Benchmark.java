@@ -0,0 +1,184 @@
+package com.example.android.sunshine.app.benchmark;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+    A small benchmark harness modelled on JMH's average time mode, for code that needs a device
+    to run.
+
+    Every benchmark is run for WARMUP_ITERATIONS iterations of ITERATION_MILLIS to let the
+    runtime compile it, then for MEASUREMENT_ITERATIONS iterations whose average time per
+    operation is the score. The results of a suite are written as JSON to
+    <external files dir>/benchmarks/<suite>.json in the layout JMH uses for
+    -rf json, so the same tools can be used to track them over time:
+
+        adb pull /sdcard/Android/data/com.example.android.sunshine.app/files/benchmarks
+ */
+public class Benchmark {
+
+    public static final String LOG_TAG = Benchmark.class.getSimpleName();
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+    private static final long ITERATION_MILLIS = 200;
+
+    // Results of every suite run by this process, by suite and benchmark name
+    private static final Map<String, Map<String, double[]>> sResults = new LinkedHashMap<>();
+
+    // Everything the benchmarked code returns ends up here, so it can't be optimized away
+    private static volatile int sSink;
+
+    /**
+     * The code to measure. One call is one operation.
+     */
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Measures the operation and writes the result into the file of the suite.
+     *
+     * @return the average time of one operation, in nanoseconds
+     */
+    public static double measure(Context context, String suite, String name, Operation operation)
+            throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            runIteration(operation);
+        }
+        double[] scores = new double[MEASUREMENT_ITERATIONS];
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            scores[i] = runIteration(operation);
+        }
+        double score = mean(scores);
+        Log.i(LOG_TAG, String.format(Locale.US, "%s.%s: %.1f ns/op", suite, name, score));
+
+        synchronized (sResults) {
+            Map<String, double[]> suiteResults = sResults.get(suite);
+            if (suiteResults == null) {
+                suiteResults = new LinkedHashMap<>();
+                sResults.put(suite, suiteResults);
+            }
+            suiteResults.put(name, scores);
+            write(context, suite, suiteResults);
+        }
+        return score;
+    }
+
+    // returns the average time of one operation in nanoseconds
+    private static double runIteration(Operation operation) throws Exception {
+        long operations = 0;
+        int sink = 0;
+        long end = SystemClock.elapsedRealtime() + ITERATION_MILLIS;
+        long start = System.nanoTime();
+        // checking the clock costs time as well, so it is only done every few operations
+        do {
+            for (int i = 0; i < 16; i++) {
+                Object result = operation.run();
+                sink += result == null ? 0 : result.hashCode();
+            }
+            operations += 16;
+        } while (SystemClock.elapsedRealtime() < end);
+        long nanos = System.nanoTime() - start;
+        sSink += sink;
+        return (double) nanos / operations;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    // Half width of the 99.9% confidence interval, like the scoreError of JMH
+    private static double error(double[] values) {
+        double mean = mean(values);
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        double standardDeviation = Math.sqrt(squares / (values.length - 1));
+        // Student's t for 4 degrees of freedom, matching MEASUREMENT_ITERATIONS
+        return 8.610 * standardDeviation / Math.sqrt(values.length);
+    }
+
+    private static void write(Context context, String suite, Map<String, double[]> results)
+            throws IOException, JSONException {
+        JSONArray json = new JSONArray();
+        for (Map.Entry<String, double[]> result : results.entrySet()) {
+            double[] scores = result.getValue();
+            List<Double> rawData = new ArrayList<>(scores.length);
+            for (double score : scores) {
+                rawData.add(score);
+            }
+
+            JSONObject primaryMetric = new JSONObject();
+            primaryMetric.put("score", mean(scores));
+            primaryMetric.put("scoreError", error(scores));
+            primaryMetric.put("scoreUnit", "ns/op");
+            primaryMetric.put("rawData", new JSONArray().put(new JSONArray(rawData)));
+
+            JSONObject benchmark = new JSONObject();
+            benchmark.put("benchmark", suite + "." + result.getKey());
+            benchmark.put("mode", "avgt");
+            benchmark.put("threads", 1);
+            benchmark.put("forks", 1);
+            benchmark.put("warmupIterations", WARMUP_ITERATIONS);
+            benchmark.put("warmupTime", ITERATION_MILLIS + " ms");
+            benchmark.put("measurementIterations", MEASUREMENT_ITERATIONS);
+            benchmark.put("measurementTime", ITERATION_MILLIS + " ms");
+            benchmark.put("vmName", System.getProperty("java.vm.name"));
+            benchmark.put("vmVersion", System.getProperty("java.vm.version"));
+            benchmark.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+            benchmark.put("sdkInt", Build.VERSION.SDK_INT);
+            benchmark.put("primaryMetric", primaryMetric);
+            json.put(benchmark);
+        }
+
+        File directory = getResultDirectory(context.getExternalFilesDir(null));
+        if (directory == null) {
+            // no external storage mounted, or not writable before KitKat
+            directory = getResultDirectory(context.getFilesDir());
+        }
+        if (directory == null) {
+            throw new IOException("Unable to create a directory for the results");
+        }
+        Writer writer = new OutputStreamWriter(
+                new FileOutputStream(new File(directory, suite + ".json")), "UTF-8");
+        try {
+            writer.write(json.toString(2));
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static File getResultDirectory(File parent) {
+        if (parent == null) {
+            return null;
+        }
+        File directory = new File(parent, "benchmarks");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return null;
+        }
+        return directory;
+    }
+}
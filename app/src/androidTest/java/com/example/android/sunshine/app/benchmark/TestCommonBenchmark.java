@@ -0,0 +1,308 @@
+package com.example.android.sunshine.app.benchmark;
+
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.common.CommonUtils;
+import com.example.android.sunshine.common.ForecastDay;
+import com.example.android.sunshine.common.Protocol;
+import com.example.android.sunshine.common.WeatherDataTelegram;
+import com.example.android.sunshine.common.WeatherTelegramCodec;
+import com.example.android.sunshine.common.WeatherUnit;
+import com.google.android.gms.wearable.DataMap;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+    Benchmarks of the code shared with the wearable, see Benchmark for where the results go.
+ */
+public class TestCommonBenchmark extends AndroidTestCase {
+
+    private static final String SUITE = "Common";
+
+    // A mix of the condition codes OpenWeatherMap sends, from the first to the last range
+    private static final int[] WEATHER_IDS = {
+            200, 232, 300, 321, 500, 504, 511, 520, 531, 600, 622, 701, 741, 761, 781,
+            800, 801, 804, 900, 906, 951, 962
+    };
+
+    private int mIndex;
+
+    public void testGetIconResourceForWeatherCondition() throws Exception {
+        Benchmark.measure(mContext, SUITE, "getIconResourceForWeatherCondition",
+                new Benchmark.Operation() {
+                    @Override
+                    public Object run() {
+                        return CommonUtils.getIconResourceForWeatherCondition(nextWeatherId());
+                    }
+                });
+    }
+
+    public void testGetArtResourceForWeatherCondition() throws Exception {
+        Benchmark.measure(mContext, SUITE, "getArtResourceForWeatherCondition",
+                new Benchmark.Operation() {
+                    @Override
+                    public Object run() {
+                        return CommonUtils.getArtResourceForWeatherCondition(nextWeatherId());
+                    }
+                });
+    }
+
+    public void testGetArtKeyForWeatherCondition() throws Exception {
+        Benchmark.measure(mContext, SUITE, "getArtKeyForWeatherCondition",
+                new Benchmark.Operation() {
+                    @Override
+                    public Object run() {
+                        return CommonUtils.getArtKeyForWeatherCondition(nextWeatherId());
+                    }
+                });
+    }
+
+    public void testGetDescriptionResourceForWeatherCondition() throws Exception {
+        Benchmark.measure(mContext, SUITE, "getDescriptionResourceForWeatherCondition",
+                new Benchmark.Operation() {
+                    @Override
+                    public Object run() {
+                        return CommonUtils.getDescriptionResourceForWeatherCondition(
+                                nextWeatherId());
+                    }
+                });
+    }
+
+    public void testGetImageUrlForWeatherCondition() throws Exception {
+        Benchmark.measure(mContext, SUITE, "getImageUrlForWeatherCondition",
+                new Benchmark.Operation() {
+                    @Override
+                    public Object run() {
+                        return CommonUtils.getImageUrlForWeatherCondition(nextWeatherId());
+                    }
+                });
+    }
+
+    // The same lookups through the if/else chains and the switch the table replaced
+
+    public void testLegacyGetIconResourceForWeatherCondition() throws Exception {
+        Benchmark.measure(mContext, SUITE, "legacyGetIconResourceForWeatherCondition",
+                new Benchmark.Operation() {
+                    @Override
+                    public Object run() {
+                        return LegacyConditionLookup.getIconResourceForWeatherCondition(
+                                nextWeatherId());
+                    }
+                });
+    }
+
+    public void testLegacyGetArtResourceForWeatherCondition() throws Exception {
+        Benchmark.measure(mContext, SUITE, "legacyGetArtResourceForWeatherCondition",
+                new Benchmark.Operation() {
+                    @Override
+                    public Object run() {
+                        return LegacyConditionLookup.getArtResourceForWeatherCondition(
+                                nextWeatherId());
+                    }
+                });
+    }
+
+    public void testLegacyGetArtKeyForWeatherCondition() throws Exception {
+        Benchmark.measure(mContext, SUITE, "legacyGetArtKeyForWeatherCondition",
+                new Benchmark.Operation() {
+                    @Override
+                    public Object run() {
+                        return LegacyConditionLookup.getArtKeyForWeatherCondition(
+                                nextWeatherId());
+                    }
+                });
+    }
+
+    public void testLegacyGetDescriptionResourceForWeatherCondition() throws Exception {
+        Benchmark.measure(mContext, SUITE, "legacyGetDescriptionResourceForWeatherCondition",
+                new Benchmark.Operation() {
+                    @Override
+                    public Object run() {
+                        return LegacyConditionLookup.getDescriptionResourceForWeatherCondition(
+                                nextWeatherId());
+                    }
+                });
+    }
+
+    public void testLegacyGetImageUrlForWeatherCondition() throws Exception {
+        Benchmark.measure(mContext, SUITE, "legacyGetImageUrlForWeatherCondition",
+                new Benchmark.Operation() {
+                    @Override
+                    public Object run() {
+                        return LegacyConditionLookup.getImageUrlForWeatherCondition(
+                                nextWeatherId());
+                    }
+                });
+    }
+
+    // A faster lookup is only worth having if it answers the same for every code
+    public void testConditionTableMatchesLegacyLookup() {
+        for (int weatherId = -1; weatherId <= 1000; weatherId++) {
+            String message = "Error: Different result for condition " + weatherId;
+            assertEquals(message,
+                    LegacyConditionLookup.getIconResourceForWeatherCondition(weatherId),
+                    CommonUtils.getIconResourceForWeatherCondition(weatherId));
+            assertEquals(message,
+                    LegacyConditionLookup.getArtResourceForWeatherCondition(weatherId),
+                    CommonUtils.getArtResourceForWeatherCondition(weatherId));
+            assertEquals(message,
+                    LegacyConditionLookup.getArtKeyForWeatherCondition(weatherId),
+                    CommonUtils.getArtKeyForWeatherCondition(weatherId));
+            assertEquals(message,
+                    LegacyConditionLookup.getDescriptionResourceForWeatherCondition(weatherId),
+                    CommonUtils.getDescriptionResourceForWeatherCondition(weatherId));
+            assertEquals(message,
+                    LegacyConditionLookup.getImageUrlForWeatherCondition(weatherId),
+                    CommonUtils.getImageUrlForWeatherCondition(weatherId));
+        }
+    }
+
+    public void testAddTelegramToData() throws Exception {
+        final WeatherDataTelegram telegram =
+                new WeatherDataTelegram(WeatherUnit.Celcius, 500, 24.75, 15.25);
+        Benchmark.measure(mContext, SUITE, "addTelegramToData", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                DataMap dataMap = new DataMap();
+                Protocol.addTelegramToData(telegram, dataMap);
+                return dataMap;
+            }
+        });
+    }
+
+    public void testTelegramFromData() throws Exception {
+        final DataMap dataMap = new DataMap();
+        Protocol.addTelegramToData(
+                new WeatherDataTelegram(WeatherUnit.Celcius, 500, 24.75, 15.25), dataMap);
+        Benchmark.measure(mContext, SUITE, "telegramFromData", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                return Protocol.telegramFromData(dataMap);
+            }
+        });
+    }
+
+    public void testAddTelegramToDataBinary() throws Exception {
+        final WeatherDataTelegram telegram =
+                new WeatherDataTelegram(WeatherUnit.Celcius, 500, 24.75, 15.25);
+        Benchmark.measure(mContext, SUITE, "addTelegramToDataBinary", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                DataMap dataMap = new DataMap();
+                Protocol.addTelegramToData(telegram, dataMap, Protocol.ENCODING_BINARY);
+                return dataMap;
+            }
+        });
+    }
+
+    public void testTelegramFromDataBinary() throws Exception {
+        final DataMap dataMap = new DataMap();
+        Protocol.addTelegramToData(new WeatherDataTelegram(WeatherUnit.Celcius, 500, 24.75, 15.25),
+                dataMap, Protocol.ENCODING_BINARY);
+        Benchmark.measure(mContext, SUITE, "telegramFromDataBinary", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                return Protocol.telegramFromData(dataMap);
+            }
+        });
+    }
+
+    public void testTelegramCodec() throws Exception {
+        WeatherDataTelegram telegram =
+                new WeatherDataTelegram(WeatherUnit.Fahrenheit, 781, -12.5, -40.25);
+        byte[] bytes = WeatherTelegramCodec.encode(telegram);
+        assertEquals(WeatherTelegramCodec.LENGTH_V1, bytes.length);
+        assertEquals(telegram, WeatherTelegramCodec.decode(bytes));
+
+        // a later version appends to the layout
+        byte[] longer = Arrays.copyOf(bytes, bytes.length + 5);
+        longer[0] = WeatherTelegramCodec.VERSION_1 + 1;
+        assertEquals(telegram, WeatherTelegramCodec.decode(longer));
+
+        assertNull(WeatherTelegramCodec.decode(Arrays.copyOf(bytes, bytes.length - 1)));
+
+        DataMap dataMap = new DataMap();
+        Protocol.addTelegramToData(telegram, dataMap, Protocol.ENCODING_BINARY);
+        assertTrue(Protocol.isTelegramInData(telegram, dataMap));
+        assertEquals(telegram, Protocol.telegramFromData(dataMap));
+        // watches that only know the keys still get the telegram
+        assertEquals(telegram, legacyTelegramFromData(dataMap));
+    }
+
+    public void testTelegramCodecWithDays() throws Exception {
+        ForecastDay[] days = {
+                new ForecastDay(500, 18.5, 11.25, 82, 14.2),
+                new ForecastDay(800, 24, 12.5, ForecastDay.UNKNOWN, ForecastDay.UNKNOWN),
+                new ForecastDay(600, -2.75, -9, 0, 0)
+        };
+        WeatherDataTelegram telegram =
+                new WeatherDataTelegram(WeatherUnit.Celcius, 701, 20.5, 10.25, days);
+        byte[] bytes = WeatherTelegramCodec.encode(telegram);
+        assertEquals(WeatherTelegramCodec.VERSION_2, bytes[0]);
+        assertEquals(telegram, WeatherTelegramCodec.decode(bytes));
+
+        // a watch that only knows version 1 gets today
+        WeatherDataTelegram today = WeatherTelegramCodec.decode(
+                Arrays.copyOf(bytes, WeatherTelegramCodec.LENGTH_V1));
+        assertEquals(new WeatherDataTelegram(WeatherUnit.Celcius, 701, 20.5, 10.25), today);
+
+        // only complete days are read
+        WeatherDataTelegram truncated = WeatherTelegramCodec.decode(
+                Arrays.copyOf(bytes, bytes.length - 1));
+        assertEquals(days.length - 1, truncated.getForecastDayCount());
+        assertEquals(days[1], truncated.getForecastDay(1));
+    }
+
+    public void testLegacyWatchReadsTelegramWithDays() throws Exception {
+        WeatherDataTelegram telegram = new WeatherDataTelegram(WeatherUnit.Celcius, 701, 20.5,
+                10.25, new ForecastDay[] {new ForecastDay(500, 18.5, 11.25, 82, 14.2)});
+        DataMap dataMap = new DataMap();
+        Protocol.addTelegramToData(telegram, dataMap, Protocol.ENCODING_BINARY);
+
+        // the data item goes over the wire as bytes
+        DataMap received = DataMap.fromByteArray(dataMap.toByteArray());
+        assertEquals(telegram, Protocol.telegramFromData(received));
+        assertEquals(new WeatherDataTelegram(WeatherUnit.Celcius, 701, 20.5, 10.25),
+                legacyTelegramFromData(received));
+    }
+
+    public void testTelegramHashCode() throws Exception {
+        Set<Integer> hashCodes = new HashSet<>();
+        int count = 0;
+        for (int weatherId : WEATHER_IDS) {
+            for (int high = -10; high < 40; high++) {
+                WeatherDataTelegram telegram =
+                        new WeatherDataTelegram(WeatherUnit.Celcius, weatherId, high, high - 8);
+                assertEquals(telegram.hashCode(), new WeatherDataTelegram(
+                        WeatherUnit.Celcius, weatherId, high, high - 8).hashCode());
+                hashCodes.add(telegram.hashCode());
+                count++;
+            }
+        }
+        assertEquals(count, hashCodes.size());
+        assertEquals(new WeatherDataTelegram(WeatherUnit.Celcius, 800, 0.0, 0.0).hashCode(),
+                new WeatherDataTelegram(WeatherUnit.Celcius, 800, -0.0, -0.0).hashCode());
+    }
+
+    // How watches built before the binary telegram read the data item
+    private static WeatherDataTelegram legacyTelegramFromData(DataMap dm) {
+        int conditionId = dm.getInt("WEATHER_CONDITION");
+        double tempMin = dm.getDouble("WEATHER_TEMP_MIN");
+        double tempMax = dm.getDouble("WEATHER_TEMP_MAX");
+        int unitValue = dm.getInt("WEATHER_TEMP_UNIT");
+
+        return new WeatherDataTelegram(
+                WeatherUnit.fromValue(unitValue),
+                conditionId,
+                tempMax,
+                tempMin
+        );
+    }
+
+    private int nextWeatherId() {
+        mIndex = (mIndex + 1) % WEATHER_IDS.length;
+        return WEATHER_IDS[mIndex];
+    }
+}
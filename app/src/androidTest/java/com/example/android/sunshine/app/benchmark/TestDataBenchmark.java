@@ -0,0 +1,44 @@
+package com.example.android.sunshine.app.benchmark;
+
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+/*
+    Benchmarks of the data layer helpers, see Benchmark for where the results go.
+ */
+public class TestDataBenchmark extends AndroidTestCase {
+
+    private static final String SUITE = "Data";
+
+    private static final long TEST_DATE = 1419033600000L;  // December 20th, 2014
+    private static final long MILLISECONDS_IN_A_DAY = 1000 * 60 * 60 * 24;
+
+    private int mDay;
+
+    public void testNormalizeDate() throws Exception {
+        Benchmark.measure(mContext, SUITE, "normalizeDate", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                return WeatherContract.normalizeDate(nextDate());
+            }
+        });
+    }
+
+    public void testNormalizeDateReusingTime() throws Exception {
+        final Time time = new Time();
+        Benchmark.measure(mContext, SUITE, "normalizeDateReusingTime", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                return WeatherContract.normalizeDate(nextDate(), time);
+            }
+        });
+    }
+
+    // a different time of a different day on every call, within a year
+    private long nextDate() {
+        mDay = (mDay + 1) % 365;
+        return TEST_DATE + mDay * MILLISECONDS_IN_A_DAY + mDay * 1000L;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.android.sunshine.app.benchmark;
+
+import android.os.Debug;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.common.CommonUtils;
+import com.example.android.sunshine.common.WeatherFormat;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/*
+    Benchmarks of the formatting done for every row of the forecast list, see Benchmark for where
+    the results go.
+ */
+public class TestUtilityBenchmark extends AndroidTestCase {
+
+    private static final String SUITE = "Utility";
+
+    private static final long MILLISECONDS_IN_A_DAY = 1000 * 60 * 60 * 24;
+
+    // Locales with other digits and separators than English
+    private static final Locale[] LOCALES = {
+            Locale.US, Locale.GERMANY, new Locale("ar", "EG"), new Locale("fa", "IR"),
+            new Locale("hi", "IN")
+    };
+
+    private static final int ALLOCATION_CALLS = 1000;
+
+    private int mIndex;
+
+    public void testFormatTemperature() throws Exception {
+        Benchmark.measure(mContext, SUITE, "formatTemperature", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                mIndex = (mIndex + 1) % 60;
+                return Utility.formatTemperature(mContext, mIndex - 20.5);
+            }
+        });
+    }
+
+    public void testAppendTemperature() throws Exception {
+        final StringBuilder builder = new StringBuilder(16);
+        Benchmark.measure(mContext, SUITE, "appendTemperature", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                mIndex = (mIndex + 1) % 60;
+                builder.setLength(0);
+                return Utility.appendTemperature(mContext, builder, mIndex - 20.5).length();
+            }
+        });
+    }
+
+    public void testGetFormattedWind() throws Exception {
+        Benchmark.measure(mContext, SUITE, "getFormattedWind", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                mIndex = (mIndex + 1) % 36;
+                return Utility.getFormattedWind(mContext, mIndex * 1.5f, mIndex * 10);
+            }
+        });
+    }
+
+    public void testAppendFormattedWind() throws Exception {
+        final StringBuilder builder = new StringBuilder(32);
+        Benchmark.measure(mContext, SUITE, "appendFormattedWind", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                mIndex = (mIndex + 1) % 36;
+                builder.setLength(0);
+                return Utility.appendFormattedWind(mContext, builder, mIndex * 1.5f, mIndex * 10)
+                        .length();
+            }
+        });
+    }
+
+    // The formatting of a row mustn't create garbage for the collector to pause the list for
+    @SuppressWarnings("deprecation")
+    public void testAppendDoesNotAllocate() {
+        StringBuilder builder = new StringBuilder(32);
+        // the first calls compile the formats
+        Utility.appendTemperature(mContext, builder, 0);
+        Utility.appendFormattedWind(mContext, builder, 0, 0);
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        try {
+            for (int i = 0; i < ALLOCATION_CALLS; i++) {
+                builder.setLength(0);
+                Utility.appendTemperature(mContext, builder, i - 20.5);
+                builder.setLength(0);
+                Utility.appendFormattedWind(mContext, builder, i * 0.5f, i % 360);
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        // Less than one for all the calls, the runtime itself may allocate now and then
+        int allocations = Debug.getThreadAllocCount();
+        assertTrue("Error: " + allocations + " allocations for " + ALLOCATION_CALLS + " calls",
+                allocations < ALLOCATION_CALLS);
+    }
+
+    public void testWeatherFormatMatchesStringFormat() {
+        double[] numbers = {
+                0, -0.0, 0.4, 0.5, -0.4, -0.5, 1.5, 2.5, -2.5, 21.49999, 99.5, -40, 1234.5,
+                1e20, Double.NaN, Double.POSITIVE_INFINITY
+        };
+        for (Locale locale : LOCALES) {
+            String[] patterns = {
+                    mContext.getString(R.string.format_temperature),
+                    mContext.getString(R.string.format_wind_kmh),
+                    mContext.getString(R.string.format_wind_mph),
+                    "%2$s %1$.0f%%"
+            };
+            for (String pattern : patterns) {
+                WeatherFormat format = WeatherFormat.compile(pattern, locale);
+                for (double number : numbers) {
+                    String direction = CommonUtils.getCompassDirection((float) number * 45);
+                    assertEquals("Error: Different result for " + number + " in " + locale,
+                            String.format(locale, pattern, number, direction),
+                            format.appendTo(new StringBuilder(), number, direction).toString());
+                }
+            }
+        }
+    }
+
+    public void testGetArtUrlForWeatherCondition() throws Exception {
+        Benchmark.measure(mContext, SUITE, "getArtUrlForWeatherCondition",
+                new Benchmark.Operation() {
+                    @Override
+                    public Object run() {
+                        // storm, rain and snow
+                        mIndex = (mIndex + 1) % 3;
+                        int weatherId = mIndex == 0 ? 200 : mIndex == 1 ? 500 : 600;
+                        return Utility.getArtUrlForWeatherCondition(mContext, weatherId);
+                    }
+                });
+    }
+
+    public void testGetFriendlyDayString() throws Exception {
+        final long now = System.currentTimeMillis();
+        Benchmark.measure(mContext, SUITE, "getFriendlyDayString", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                // today, the days of this week and the ones after, like the forecast list
+                mIndex = (mIndex + 1) % 14;
+                return Utility.getFriendlyDayString(mContext,
+                        now + mIndex * MILLISECONDS_IN_A_DAY, mIndex == 0);
+            }
+        });
+    }
+
+    // The cached labels have to be the ones the list showed before they were cached
+    public void testDayLabels() {
+        long now = System.currentTimeMillis();
+        long tomorrow = now + MILLISECONDS_IN_A_DAY;
+        long nextWeek = now + 7 * MILLISECONDS_IN_A_DAY;
+        // the second time round they come from the cache
+        for (int i = 0; i < 2; i++) {
+            String today = mContext.getString(R.string.today);
+            assertEquals(today, Utility.getDayName(mContext, now));
+            assertEquals(mContext.getString(R.string.tomorrow),
+                    Utility.getDayName(mContext, tomorrow));
+            assertEquals(mContext.getString(R.string.format_full_friendly_date, today,
+                            new SimpleDateFormat("MMMM dd").format(now)),
+                    Utility.getFriendlyDayString(mContext, now, true));
+            assertEquals(today, Utility.getFriendlyDayString(mContext, now, false));
+            assertEquals(new SimpleDateFormat("EEE MMM dd").format(nextWeek),
+                    Utility.getFriendlyDayString(mContext, nextWeek, false));
+            assertEquals(new SimpleDateFormat("MMMM dd").format(nextWeek),
+                    Utility.getFormattedMonthDay(mContext, nextWeek));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+/*
+    Measures the write throughput of WeatherProvider.bulkInsert against the one
+    SQLiteDatabase.insert per row it used to do. The results are written to the log as rows/sec.
+
+    Two shapes of data are measured:
+    - a history import: many consecutive days of a single location
+    - a multi-location sync: 14 days for as many locations as needed
+ */
+public class TestBulkInsertPerformance extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestBulkInsertPerformance.class.getSimpleName();
+
+    private static final int DAYS_PER_SYNC = 14;
+    private static final long MILLISECONDS_IN_A_DAY = 1000 * 60 * 60 * 24;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAllRecords();
+        super.tearDown();
+    }
+
+    public void testHistoryImport14() {
+        measure("history", 14, 1);
+    }
+
+    public void testHistoryImport1000() {
+        measure("history", 1000, 1);
+    }
+
+    public void testHistoryImport100000() {
+        measure("history", 100000, 1);
+    }
+
+    public void testMultiLocationSync14() {
+        measure("multi-location", 14, 1);
+    }
+
+    public void testMultiLocationSync1000() {
+        measure("multi-location", 1000, (1000 + DAYS_PER_SYNC - 1) / DAYS_PER_SYNC);
+    }
+
+    public void testMultiLocationSync100000() {
+        measure("multi-location", 100000, (100000 + DAYS_PER_SYNC - 1) / DAYS_PER_SYNC);
+    }
+
+    private void measure(String name, int rowCount, int locationCount) {
+        long legacyMillis = timeLegacyInsert(createRows(rowCount, insertLocations(locationCount)));
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+
+        long bulkMillis = timeBulkInsert(createRows(rowCount, insertLocations(locationCount)));
+        assertRowCount(rowCount);
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+
+        long upsertMillis = timeUpsert(createRows(rowCount, insertLocations(locationCount)));
+        assertRowCount(rowCount);
+
+        Log.i(LOG_TAG, name + " " + rowCount + " rows: "
+                + "insert per row " + rowsPerSecond(rowCount, legacyMillis) + " rows/sec, "
+                + "bulkInsert " + rowsPerSecond(rowCount, bulkMillis) + " rows/sec, "
+                + "upsert " + rowsPerSecond(rowCount, upsertMillis) + " rows/sec");
+    }
+
+    private long timeLegacyInsert(ContentValues[] rows) {
+        SQLiteDatabase db = new WeatherDbHelper(mContext).getWritableDatabase();
+        long start = SystemClock.elapsedRealtime();
+        db.beginTransaction();
+        try {
+            for (ContentValues row : rows) {
+                row.put(WeatherEntry.COLUMN_DATE,
+                        WeatherContract.normalizeDate(row.getAsLong(WeatherEntry.COLUMN_DATE)));
+                db.insert(WeatherEntry.TABLE_NAME, null, row);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        long millis = SystemClock.elapsedRealtime() - start;
+        db.close();
+        return millis;
+    }
+
+    private long timeBulkInsert(ContentValues[] rows) {
+        long start = SystemClock.elapsedRealtime();
+        int insertCount = mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI, rows);
+        long millis = SystemClock.elapsedRealtime() - start;
+        assertEquals(rows.length, insertCount);
+        return millis;
+    }
+
+    private long timeUpsert(ContentValues[] rows) {
+        long start = SystemClock.elapsedRealtime();
+        int changedCount = mContext.getContentResolver().bulkInsert(
+                WeatherEntry.buildWeatherUpsertUri(), rows);
+        long millis = SystemClock.elapsedRealtime() - start;
+        assertEquals(rows.length, changedCount);
+        return millis;
+    }
+
+    private void deleteAllRecords() {
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    private long[] insertLocations(int locationCount) {
+        deleteAllRecords();
+
+        SQLiteDatabase db = new WeatherDbHelper(mContext).getWritableDatabase();
+        long[] locationIds = new long[locationCount];
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < locationCount; i++) {
+                ContentValues values = TestUtilities.createNorthPoleLocationValues();
+                values.put(LocationEntry.COLUMN_LOCATION_SETTING, TestUtilities.TEST_LOCATION + "-" + i);
+                locationIds[i] = db.insert(LocationEntry.TABLE_NAME, null, values);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.close();
+        return locationIds;
+    }
+
+    // With a single location the rows are consecutive days, otherwise every location gets
+    // DAYS_PER_SYNC days
+    private static ContentValues[] createRows(int rowCount, long[] locationIds) {
+        int daysPerLocation = locationIds.length == 1 ? rowCount : DAYS_PER_SYNC;
+        ContentValues[] rows = new ContentValues[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            long locationId = locationIds[i / daysPerLocation];
+            int day = i % daysPerLocation;
+
+            ContentValues weatherValues = new ContentValues();
+            weatherValues.put(WeatherEntry.COLUMN_LOC_KEY, locationId);
+            weatherValues.put(WeatherEntry.COLUMN_DATE,
+                    TestUtilities.TEST_DATE + day * MILLISECONDS_IN_A_DAY);
+            weatherValues.put(WeatherEntry.COLUMN_DEGREES, 1.1);
+            weatherValues.put(WeatherEntry.COLUMN_HUMIDITY, 1.2 + 0.01 * (day % 50));
+            weatherValues.put(WeatherEntry.COLUMN_PRESSURE, 1.3 - 0.01 * (day % 50));
+            weatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, 75 + day % 20);
+            weatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, 65 - day % 20);
+            weatherValues.put(WeatherEntry.COLUMN_SHORT_DESC, "Asteroids");
+            weatherValues.put(WeatherEntry.COLUMN_WIND_SPEED, 5.5 + 0.2 * (day % 10));
+            weatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, 321);
+            rows[i] = weatherValues;
+        }
+        return rows;
+    }
+
+    private void assertRowCount(int expectedRowCount) {
+        SQLiteDatabase db = new WeatherDbHelper(mContext).getReadableDatabase();
+        long rowCount = DatabaseUtils.queryNumEntries(db, WeatherEntry.TABLE_NAME);
+        db.close();
+        assertEquals(expectedRowCount, rowCount);
+    }
+
+    private static long rowsPerSecond(int rowCount, long millis) {
+        return rowCount * 1000L / Math.max(millis, 1);
+    }
+}
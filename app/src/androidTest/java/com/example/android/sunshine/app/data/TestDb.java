@@ -18,9 +18,11 @@ package com.example.android.sunshine.app.data;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
 import android.test.AndroidTestCase;
 
 import java.util.HashSet;
+import java.util.Locale;
 
 public class TestDb extends AndroidTestCase {
 
@@ -111,6 +113,20 @@ public class TestDb extends AndroidTestCase {
         where you can uncomment out the "createNorthPoleLocationValues" function.  You can
         also make use of the ValidateCurrentRecord function from within TestUtilities.
     */
+    public void testWriteAheadLogging() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            // not available before Honeycomb
+            return;
+        }
+        SQLiteDatabase db = new WeatherDbHelper(this.mContext).getWritableDatabase();
+        Cursor c = db.rawQuery("PRAGMA journal_mode", null);
+        assertTrue("Error: Unable to query the journal mode", c.moveToFirst());
+        assertEquals("Error: The database doesn't use write-ahead logging",
+                "wal", c.getString(0).toLowerCase(Locale.US));
+        c.close();
+        db.close();
+    }
+
     public void testLocationTable() {
         insertLocation();
     }
@@ -512,4 +512,153 @@ public class TestProvider extends AndroidTestCase {
         }
         cursor.close();
     }
+
+    public void testBulkUpsert() {
+        long locationRowId = TestUtilities.insertNorthPoleLocationValues(mContext);
+        Uri upsertUri = WeatherEntry.buildWeatherUpsertUri();
+
+        // all rows are new
+        ContentValues[] bulkInsertContentValues = createBulkInsertWeatherValues(locationRowId);
+        int changedCount = mContext.getContentResolver().bulkInsert(upsertUri, bulkInsertContentValues);
+        assertEquals("Error: New rows not inserted by upsert",
+                BULK_INSERT_RECORDS_TO_INSERT, changedCount);
+
+        long[] ids = queryWeatherIds();
+        assertEquals(BULK_INSERT_RECORDS_TO_INSERT, ids.length);
+
+        // the same values again don't touch anything
+        changedCount = mContext.getContentResolver().bulkInsert(upsertUri,
+                createBulkInsertWeatherValues(locationRowId));
+        assertEquals("Error: Unchanged rows written by upsert", 0, changedCount);
+
+        // only the modified row is written, in place
+        ContentValues[] modifiedValues = createBulkInsertWeatherValues(locationRowId);
+        modifiedValues[3].put(WeatherEntry.COLUMN_MAX_TEMP, 99);
+        changedCount = mContext.getContentResolver().bulkInsert(upsertUri, modifiedValues);
+        assertEquals("Error: Changed row not updated by upsert", 1, changedCount);
+
+        long[] idsAfterUpsert = queryWeatherIds();
+        assertEquals(BULK_INSERT_RECORDS_TO_INSERT, idsAfterUpsert.length);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals("Error: _id changed by upsert", ids[i], idsAfterUpsert[i]);
+        }
+
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherEntry.CONTENT_URI,
+                null,
+                null,
+                null,
+                WeatherEntry.COLUMN_DATE + " ASC"
+        );
+        cursor.moveToPosition(3);
+        TestUtilities.validateCurrentRecord("testBulkUpsert.  Error validating updated WeatherEntry",
+                cursor, modifiedValues[3]);
+        cursor.close();
+    }
+
+    private long[] queryWeatherIds() {
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherEntry.CONTENT_URI,
+                new String[]{WeatherEntry._ID},
+                null,
+                null,
+                WeatherEntry.COLUMN_DATE + " ASC"
+        );
+        long[] ids = new long[cursor.getCount()];
+        for (int i = 0; cursor.moveToNext(); i++) {
+            ids[i] = cursor.getLong(0);
+        }
+        cursor.close();
+        return ids;
+    }
+
+    public void testQueryLatencyStats() {
+        QueryLatencyStats stats = QueryLatencyStats.getInstance();
+        stats.reset();
+
+        // nothing is measured while the stats are disabled
+        stats.setEnabled(false);
+        Cursor cursor = mContext.getContentResolver().query(
+                LocationEntry.CONTENT_URI,
+                null,
+                null,
+                null,
+                null
+        );
+        cursor.close();
+        assertEquals(0, stats.getIdle().count);
+
+        stats.setEnabled(true);
+        try {
+            cursor = mContext.getContentResolver().query(
+                    LocationEntry.CONTENT_URI,
+                    null,
+                    null,
+                    null,
+                    null
+            );
+            cursor.close();
+        } finally {
+            stats.setEnabled(false);
+        }
+
+        QueryLatencyStats.Bucket idle = QueryLatencyStats.getInstance().getIdle();
+        assertEquals("Error: Query latency not recorded", 1, idle.count);
+        assertTrue(idle.totalNanos > 0);
+        assertEquals(0, QueryLatencyStats.getInstance().getDuringWrite().count);
+    }
+
+    public void testForecastSnapshotCache() {
+        long locationRowId = TestUtilities.insertNorthPoleLocationValues(mContext);
+        mContext.getContentResolver().insert(WeatherEntry.CONTENT_URI,
+                TestUtilities.createWeatherValues(locationRowId));
+
+        ForecastSnapshotCache cache = ForecastSnapshotCache.getInstance();
+        long misses = cache.getMissCount();
+        long hits = cache.getHitCount();
+
+        // the first read goes to the provider, the second one is served from memory
+        ForecastSnapshot snapshot = cache.get(mContext, TestUtilities.TEST_LOCATION,
+                TestUtilities.TEST_DATE);
+        assertNotNull("Error: Stored weather not found", snapshot);
+        assertEquals(WeatherContract.normalizeDate(TestUtilities.TEST_DATE), snapshot.date);
+        assertEquals(321, snapshot.weatherId);
+        assertEquals(misses + 1, cache.getMissCount());
+
+        assertSame(snapshot, cache.get(mContext, TestUtilities.TEST_LOCATION,
+                TestUtilities.TEST_DATE));
+        assertEquals(hits + 1, cache.getHitCount());
+
+        // a write through the provider drops the cached weather
+        ContentValues updatedValues = new ContentValues();
+        updatedValues.put(WeatherEntry.COLUMN_MAX_TEMP, 80);
+        mContext.getContentResolver().update(WeatherEntry.CONTENT_URI, updatedValues, null, null);
+
+        ForecastSnapshot updatedSnapshot = cache.get(mContext, TestUtilities.TEST_LOCATION,
+                TestUtilities.TEST_DATE);
+        assertEquals(misses + 2, cache.getMissCount());
+        assertEquals(80.0, updatedSnapshot.maxTemp);
+    }
+
+    public void testForecastSnapshotCacheFirstFrom() {
+        long locationRowId = TestUtilities.insertNorthPoleLocationValues(mContext);
+        mContext.getContentResolver().insert(WeatherEntry.CONTENT_URI,
+                TestUtilities.createWeatherValues(locationRowId));
+        long dayBefore = TestUtilities.TEST_DATE - 24 * 60 * 60 * 1000;
+
+        // there is nothing stored for the day before, the next day is shown instead
+        ForecastSnapshotCache cache = ForecastSnapshotCache.getInstance();
+        assertNull(cache.get(mContext, TestUtilities.TEST_LOCATION, dayBefore));
+        ForecastSnapshot snapshot = cache.getFirstFrom(mContext, TestUtilities.TEST_LOCATION,
+                dayBefore);
+        assertNotNull("Error: Weather after the day not found", snapshot);
+        assertEquals(WeatherContract.normalizeDate(TestUtilities.TEST_DATE), snapshot.date);
+
+        long hits = cache.getHitCount();
+        assertSame(snapshot, cache.getFirstFrom(mContext, TestUtilities.TEST_LOCATION,
+                dayBefore));
+        assertEquals(hits + 1, cache.getHitCount());
+        // the day itself is still unknown
+        assertNull(cache.get(mContext, TestUtilities.TEST_LOCATION, dayBefore));
+    }
 }
@@ -0,0 +1,172 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Checks with EXPLAIN QUERY PLAN that the three queries WeatherProvider runs on the
+    weather/location join are answered through indexes. If one of them ends up scanning a table
+    it gets slower with every day of history stored, which is what these tests are there to catch.
+ */
+public class TestQueryPlan extends AndroidTestCase {
+
+    private static final int LOCATION_COUNT = 5;
+    private static final int DAYS_PER_LOCATION = 400;
+    private static final long MILLISECONDS_IN_A_DAY = 1000 * 60 * 60 * 24;
+
+    // the columns of the forecast list, the widgets and Muzei
+    private static final String[] LIST_COLUMNS = {
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry._ID,
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            LocationEntry.COLUMN_COORD_LAT,
+            LocationEntry.COLUMN_COORD_LONG
+    };
+
+    // the columns of the detail screen
+    private static final String[] DETAIL_COLUMNS = {
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry._ID,
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.COLUMN_DEGREES,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            LocationEntry.COLUMN_LOCATION_SETTING
+    };
+
+    private static final String SORT_ORDER = WeatherEntry.COLUMN_DATE + " ASC";
+
+    private SQLiteDatabase mDb;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+        mDb = new WeatherDbHelper(mContext).getWritableDatabase();
+        insertHistory();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mDb.close();
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+        super.tearDown();
+    }
+
+    public void testLocationQueryPlan() {
+        assertSortedIndexSearch(WeatherProvider.sLocationSettingSelection,
+                new String[]{locationSetting(0)});
+    }
+
+    public void testLocationWithStartDateQueryPlan() {
+        assertSortedIndexSearch(WeatherProvider.sLocationSettingWithStartDateSelection,
+                new String[]{locationSetting(0), Long.toString(date(DAYS_PER_LOCATION / 2))});
+    }
+
+    public void testLocationAndDayQueryPlan() {
+        String sql = WeatherProvider.sWeatherByLocationSettingQueryBuilder.buildQuery(
+                DETAIL_COLUMNS, WeatherProvider.sLocationSettingAndDaySelection,
+                null, null, null, null);
+        String[] args = {locationSetting(0), Long.toString(date(DAYS_PER_LOCATION / 2))};
+        assertNoTableScan(sql, args);
+        mDb.execSQL("ANALYZE");
+        assertNoTableScan(sql, args);
+    }
+
+    public void testWeatherIndexExists() {
+        Cursor c = mDb.rawQuery("SELECT name FROM sqlite_master WHERE type='index' AND name=?",
+                new String[]{WeatherEntry.INDEX_LOCATION_DATE});
+        assertTrue("Error: The weather table has no index on location and date", c.moveToFirst());
+        c.close();
+    }
+
+    // The list queries have to be searched through the covering index, already in date order
+    private void assertSortedIndexSearch(String selection, String[] args) {
+        String sql = WeatherProvider.sWeatherByLocationSettingQueryBuilder.buildQuery(
+                LIST_COLUMNS, selection, null, null, SORT_ORDER, null);
+        assertSortedIndexSearch(sql, args, explain(sql, args));
+
+        // with statistics about the data the planner may choose differently
+        mDb.execSQL("ANALYZE");
+        assertSortedIndexSearch(sql, args, explain(sql, args));
+    }
+
+    private void assertSortedIndexSearch(String sql, String[] args, List<String> plan) {
+        assertNoTableScan(sql, args);
+        boolean coveringIndexUsed = false;
+        for (String step : plan) {
+            assertFalse("Error: Sorting with a temporary b-tree in " + plan + " of " + sql,
+                    step.contains("TEMP B-TREE"));
+            if (step.contains("COVERING INDEX " + WeatherEntry.INDEX_LOCATION_DATE)) {
+                coveringIndexUsed = true;
+            }
+        }
+        assertTrue("Error: " + WeatherEntry.INDEX_LOCATION_DATE + " doesn't cover " + plan
+                + " of " + sql, coveringIndexUsed);
+    }
+
+    private void assertNoTableScan(String sql, String[] args) {
+        List<String> plan = explain(sql, args);
+        assertFalse("Error: No query plan for " + sql, plan.isEmpty());
+        for (String step : plan) {
+            // older SQLite versions write "SCAN TABLE weather", newer ones "SCAN weather"
+            assertFalse("Error: Table scan in " + plan + " of " + sql, step.startsWith("SCAN"));
+        }
+    }
+
+    private List<String> explain(String sql, String[] args) {
+        List<String> plan = new ArrayList<String>();
+        Cursor c = mDb.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        int detailIndex = c.getColumnIndex("detail");
+        while (c.moveToNext()) {
+            plan.add(c.getString(detailIndex));
+        }
+        c.close();
+        return plan;
+    }
+
+    private void insertHistory() {
+        mDb.beginTransaction();
+        try {
+            for (int location = 0; location < LOCATION_COUNT; location++) {
+                ContentValues locationValues = TestUtilities.createNorthPoleLocationValues();
+                locationValues.put(LocationEntry.COLUMN_LOCATION_SETTING, locationSetting(location));
+                long locationRowId = mDb.insert(LocationEntry.TABLE_NAME, null, locationValues);
+                assertTrue(locationRowId != -1);
+
+                for (int day = 0; day < DAYS_PER_LOCATION; day++) {
+                    ContentValues weatherValues = TestUtilities.createWeatherValues(locationRowId);
+                    weatherValues.put(WeatherEntry.COLUMN_DATE, date(day));
+                    assertTrue(mDb.insert(WeatherEntry.TABLE_NAME, null, weatherValues) != -1);
+                }
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    private static String locationSetting(int location) {
+        return TestUtilities.TEST_LOCATION + "-" + location;
+    }
+
+    private static long date(int day) {
+        return WeatherContract.normalizeDate(TestUtilities.TEST_DATE + day * MILLISECONDS_IN_A_DAY);
+    }
+}
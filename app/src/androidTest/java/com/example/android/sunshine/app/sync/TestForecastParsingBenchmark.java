@@ -0,0 +1,99 @@
+package com.example.android.sunshine.app.sync;
+
+import android.os.Build;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.benchmark.Benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.StringReader;
+
+/*
+    Benchmarks of parsing a 14 day forecast response, see Benchmark for where the results go.
+ */
+public class TestForecastParsingBenchmark extends AndroidTestCase {
+
+    private static final String SUITE = "ForecastParsing";
+
+    private static final int NUM_DAYS = 14;
+
+    private String mForecastJson;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mForecastJson = createForecastJson();
+    }
+
+    public void testGetWeatherDataFromJson() throws Exception {
+        Benchmark.measure(mContext, SUITE, "getWeatherDataFromJson", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                ForecastSyncEngine.LocationForecast forecast =
+                        new ForecastSyncEngine.LocationForecast("94043");
+                ForecastSyncEngine.getWeatherDataFromJson(mForecastJson, forecast);
+                assertEquals(NUM_DAYS, forecast.days.size());
+                return forecast.days;
+            }
+        });
+    }
+
+    public void testGetWeatherDataFromStream() throws Exception {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            // JsonReader is not available before Honeycomb
+            return;
+        }
+        Benchmark.measure(mContext, SUITE, "getWeatherDataFromStream", new Benchmark.Operation() {
+            @Override
+            public Object run() throws Exception {
+                ForecastSyncEngine.LocationForecast forecast =
+                        new ForecastSyncEngine.LocationForecast("94043");
+                ForecastSyncEngine.getWeatherDataFromStream(new StringReader(mForecastJson), forecast);
+                assertEquals(NUM_DAYS, forecast.days.size());
+                return forecast.days;
+            }
+        });
+    }
+
+    // A response in the layout of the OpenWeatherMap daily forecast
+    static String createForecastJson() throws JSONException {
+        JSONArray days = new JSONArray();
+        for (int i = 0; i < NUM_DAYS; i++) {
+            days.put(new JSONObject()
+                    .put("dt", 1419033600L + i * 86400L)
+                    .put("temp", new JSONObject()
+                            .put("day", 20.5 + i)
+                            .put("min", 15.25 + i)
+                            .put("max", 24.75 + i)
+                            .put("night", 16.0)
+                            .put("eve", 19.0)
+                            .put("morn", 15.5))
+                    .put("pressure", 1013.25 - i)
+                    .put("humidity", 60 + i)
+                    .put("weather", new JSONArray().put(new JSONObject()
+                            .put("id", 500 + i)
+                            .put("main", "Rain")
+                            .put("description", "light rain")
+                            .put("icon", "10d")))
+                    .put("speed", 3.5 + i * 0.1)
+                    .put("deg", 180 + i)
+                    .put("clouds", 40)
+                    .put("rain", 1.5));
+        }
+        return new JSONObject()
+                .put("city", new JSONObject()
+                        .put("id", 5375480)
+                        .put("name", "Mountain View")
+                        .put("coord", new JSONObject().put("lon", -122.0838).put("lat", 37.386))
+                        .put("country", "US")
+                        .put("population", 0))
+                .put("cod", "200")
+                .put("message", 0.0123)
+                .put("cnt", NUM_DAYS)
+                .put("list", days)
+                .toString();
+    }
+}
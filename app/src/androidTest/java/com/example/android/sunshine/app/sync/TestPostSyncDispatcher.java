@@ -0,0 +1,129 @@
+package com.example.android.sunshine.app.sync;
+
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.ForecastSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestPostSyncDispatcher extends AndroidTestCase {
+
+    private static class RecordingConsumer implements PostSyncDispatcher.Consumer {
+        final List<PostSyncPayload> payloads = new ArrayList<>();
+        // a payload is only taken once this is counted down, like a blocking load ignoring
+        // interrupts
+        final CountDownLatch release;
+        final CountDownLatch entered = new CountDownLatch(1);
+
+        RecordingConsumer(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public String getName() {
+            return "recording";
+        }
+
+        @Override
+        public void onWeatherUpdated(PostSyncPayload payload) {
+            entered.countDown();
+            boolean interrupted = false;
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (payloads) {
+                payloads.add(payload);
+            }
+        }
+    }
+
+    private static class FailingConsumer implements PostSyncDispatcher.Consumer {
+        @Override
+        public String getName() {
+            return "failing";
+        }
+
+        @Override
+        public void onWeatherUpdated(PostSyncPayload payload) {
+            throw new IllegalStateException("test");
+        }
+    }
+
+    private PostSyncDispatcher mDispatcher;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mDispatcher != null) {
+            mDispatcher.release();
+        }
+        super.tearDown();
+    }
+
+    /*
+        dispatch returns once all consumers are done, and a failing consumer doesn't keep the
+        others from being updated.
+     */
+    public void testDispatchWaitsForConsumers() throws Exception {
+        RecordingConsumer first = new RecordingConsumer(new CountDownLatch(0));
+        RecordingConsumer second = new RecordingConsumer(new CountDownLatch(0));
+        mDispatcher = new PostSyncDispatcher(first, new FailingConsumer(), second);
+
+        PostSyncPayload payload = createPayload();
+        mDispatcher.dispatch(payload);
+
+        for (RecordingConsumer consumer : new RecordingConsumer[] {first, second}) {
+            synchronized (consumer.payloads) {
+                assertEquals(1, consumer.payloads.size());
+                assertSame(payload, consumer.payloads.get(0));
+            }
+        }
+        assertEquals(1, mDispatcher.getStats(0).count);
+        assertEquals(1, mDispatcher.getStats(1).count);
+        assertEquals(1, mDispatcher.getStats(2).count);
+    }
+
+    /*
+        A consumer that is still stuck after the time of a dispatch is skipped by the next one,
+        instead of taking up its time as well.
+     */
+    public void testSkipsBusyConsumer() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingConsumer stuck = new RecordingConsumer(release);
+        RecordingConsumer other = new RecordingConsumer(new CountDownLatch(0));
+        long maxDispatchMillis = 200;
+        mDispatcher = new PostSyncDispatcher(maxDispatchMillis, stuck, other);
+
+        PostSyncPayload first = createPayload();
+        mDispatcher.dispatch(first);
+        assertTrue(stuck.entered.await(0, TimeUnit.MILLISECONDS));
+
+        PostSyncPayload second = createPayload();
+        long start = System.nanoTime();
+        mDispatcher.dispatch(second);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Waited " + millis + " ms for a busy consumer", millis < maxDispatchMillis);
+        assertEquals(1, mDispatcher.getStats(0).skipped);
+
+        release.countDown();
+        synchronized (other.payloads) {
+            assertEquals(2, other.payloads.size());
+            assertSame(second, other.payloads.get(1));
+        }
+        assertEquals(0, mDispatcher.getStats(1).skipped);
+    }
+
+    private static PostSyncPayload createPayload() {
+        return new PostSyncPayload("94043", null, new ArrayList<ForecastSnapshot>(),
+                System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.android.sunshine.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.text.format.Time;
+import android.util.SparseArray;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * The labels {@link Utility} shows for the days of the forecast, by Julian day.
+ *
+ * Every row of the forecast list needs the label of its day, and building one takes a
+ * {@link Time} and a {@link SimpleDateFormat}. The labels only change when the day does, when the
+ * time zone changes or when the locale does, so they are built once and kept until then. Each
+ * call checks the current day and locale, so nothing has to listen for midnight. Getting the
+ * default time zone makes a copy of it, so the zone is kept until the system announces a new one.
+ */
+class DayLabelCache {
+
+    private static final DayLabelCache sInstance = new DayLabelCache();
+
+    private Locale mLocale;
+    private TimeZone mTimeZone;
+    // Set when the time zone changed since mTimeZone was read
+    private boolean mTimeZoneChanged = true;
+    private boolean mReceiverRegistered;
+    // offset of the time zone in seconds, it changes with daylight saving time
+    private int mGmtoff;
+    private int mCurrentJulianDay;
+
+    // Created for the locale and time zone above
+    private SimpleDateFormat mShortenedDateFormat;
+    private SimpleDateFormat mDayFormat;
+    private SimpleDateFormat mMonthDayFormat;
+
+    private final SparseArray<Labels> mLabels = new SparseArray<>();
+
+    // The labels of one day, each one built when it is first asked for
+    private static class Labels {
+        String friendlyDay;
+        String longFriendlyDay;
+        String fullFriendlyDay;
+        String dayName;
+        String monthDay;
+    }
+
+    static DayLabelCache getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * @see Utility#getFriendlyDayString(Context, long, boolean)
+     */
+    synchronized String getFriendlyDayString(Context context, long dateInMillis,
+            boolean displayLongToday) {
+        Labels labels = getLabels(context, dateInMillis);
+        int julianDay = Time.getJulianDay(dateInMillis, mGmtoff);
+
+        // If the date we're building the String for is today's date, the format
+        // is "Today, June 24"
+        if (displayLongToday && julianDay == mCurrentJulianDay) {
+            if (labels.longFriendlyDay == null) {
+                String today = context.getString(R.string.today);
+                labels.longFriendlyDay = String.format(context.getString(
+                        R.string.format_full_friendly_date,
+                        today,
+                        getFormattedMonthDay(dateInMillis, labels)));
+            }
+            return labels.longFriendlyDay;
+        }
+        if (labels.friendlyDay == null) {
+            if (julianDay < mCurrentJulianDay + 7) {
+                // If the input date is less than a week in the future, just return the day name.
+                labels.friendlyDay = getDayName(context, dateInMillis, julianDay, labels);
+            } else {
+                // Otherwise, use the form "Mon Jun 3"
+                labels.friendlyDay = mShortenedDateFormat.format(dateInMillis);
+            }
+        }
+        return labels.friendlyDay;
+    }
+
+    /**
+     * @see Utility#getFullFriendlyDayString(Context, long)
+     */
+    synchronized String getFullFriendlyDayString(Context context, long dateInMillis) {
+        Labels labels = getLabels(context, dateInMillis);
+        if (labels.fullFriendlyDay == null) {
+            int julianDay = Time.getJulianDay(dateInMillis, mGmtoff);
+            labels.fullFriendlyDay = String.format(context.getString(
+                    R.string.format_full_friendly_date,
+                    getDayName(context, dateInMillis, julianDay, labels),
+                    getFormattedMonthDay(dateInMillis, labels)));
+        }
+        return labels.fullFriendlyDay;
+    }
+
+    /**
+     * @see Utility#getDayName(Context, long)
+     */
+    synchronized String getDayName(Context context, long dateInMillis) {
+        Labels labels = getLabels(context, dateInMillis);
+        return getDayName(context, dateInMillis, Time.getJulianDay(dateInMillis, mGmtoff), labels);
+    }
+
+    /**
+     * @see Utility#getFormattedMonthDay(Context, long)
+     */
+    synchronized String getFormattedMonthDay(Context context, long dateInMillis) {
+        return getFormattedMonthDay(dateInMillis, getLabels(context, dateInMillis));
+    }
+
+    private String getDayName(Context context, long dateInMillis, int julianDay, Labels labels) {
+        if (labels.dayName == null) {
+            // If the date is today, return the localized version of "Today" instead of the actual
+            // day name.
+            if (julianDay == mCurrentJulianDay) {
+                labels.dayName = context.getString(R.string.today);
+            } else if (julianDay == mCurrentJulianDay + 1) {
+                labels.dayName = context.getString(R.string.tomorrow);
+            } else {
+                // Otherwise, the format is just the day of the week (e.g "Wednesday".
+                labels.dayName = mDayFormat.format(dateInMillis);
+            }
+        }
+        return labels.dayName;
+    }
+
+    private String getFormattedMonthDay(long dateInMillis, Labels labels) {
+        if (labels.monthDay == null) {
+            labels.monthDay = mMonthDayFormat.format(dateInMillis);
+        }
+        return labels.monthDay;
+    }
+
+    // Returns the labels of the day of the date, after dropping all of them if they are outdated
+    private Labels getLabels(Context context, long dateInMillis) {
+        if (!mReceiverRegistered) {
+            context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    synchronized (DayLabelCache.this) {
+                        mTimeZoneChanged = true;
+                    }
+                }
+            }, new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED));
+            mReceiverRegistered = true;
+        }
+
+        long now = System.currentTimeMillis();
+        Locale locale = Locale.getDefault();
+        TimeZone timeZone = mTimeZoneChanged ? TimeZone.getDefault() : mTimeZone;
+        mTimeZoneChanged = false;
+        int gmtoff = timeZone.getOffset(now) / 1000;
+        int currentJulianDay = Time.getJulianDay(now, gmtoff);
+
+        if (!locale.equals(mLocale) || !timeZone.equals(mTimeZone)) {
+            mLocale = locale;
+            mTimeZone = timeZone;
+            mShortenedDateFormat = new SimpleDateFormat("EEE MMM dd");
+            mDayFormat = new SimpleDateFormat("EEEE");
+            mMonthDayFormat = new SimpleDateFormat("MMMM dd");
+            mLabels.clear();
+        }
+        if (gmtoff != mGmtoff || currentJulianDay != mCurrentJulianDay) {
+            // past midnight, "Today" and "Tomorrow" have moved on
+            mGmtoff = gmtoff;
+            mCurrentJulianDay = currentJulianDay;
+            mLabels.clear();
+        }
+
+        int julianDay = Time.getJulianDay(dateInMillis, gmtoff);
+        Labels labels = mLabels.get(julianDay);
+        if (labels == null) {
+            labels = new Labels();
+            mLabels.put(julianDay, labels);
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * The changes that turn one list of {@link ForecastRow}s into another, keyed by the date of the
+ * rows.
+ *
+ * Both lists are sorted by date and have one row per date, so a row never moves relative to the
+ * others: it is kept, changed, inserted or removed. Those are found by walking through both lists
+ * once, and consecutive changes of the same kind are merged into ranges.
+ */
+public final class ForecastDiff {
+
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int CHANGE = 2;
+
+    private final ForecastRow[] mOldRows;
+    private final ForecastRow[] mNewRows;
+
+    // The ranges, as kind, position and count, in the order they have to be dispatched
+    private int[] mOperations = new int[3 * 4];
+    private int mOperationCount;
+    // Where the first old row is in the new list, -1 if it was removed
+    private int mOldFirstRowPosition = -1;
+
+    private ForecastDiff(ForecastRow[] oldRows, ForecastRow[] newRows) {
+        mOldRows = oldRows;
+        mNewRows = newRows;
+    }
+
+    /**
+     * Compares two results of {@link ForecastLoader}. Call it on a background thread.
+     */
+    public static ForecastDiff compute(ForecastRow[] oldRows, ForecastRow[] newRows) {
+        ForecastDiff diff = new ForecastDiff(oldRows, newRows);
+        int oldIndex = 0;
+        int newIndex = 0;
+        // the position in the list while the changes so far are applied
+        int position = 0;
+        while (oldIndex < oldRows.length || newIndex < newRows.length) {
+            // the end of a list sorts after every date
+            long oldDate = oldIndex < oldRows.length ? oldRows[oldIndex].date : Long.MAX_VALUE;
+            long newDate = newIndex < newRows.length ? newRows[newIndex].date : Long.MAX_VALUE;
+            if (oldDate < newDate) {
+                diff.add(REMOVE, position);
+                oldIndex++;
+            } else if (oldDate > newDate) {
+                diff.add(INSERT, position);
+                newIndex++;
+                position++;
+            } else {
+                if (oldIndex == 0) {
+                    diff.mOldFirstRowPosition = position;
+                }
+                if (!oldRows[oldIndex].sameContentAs(newRows[newIndex])) {
+                    diff.add(CHANGE, position);
+                }
+                oldIndex++;
+                newIndex++;
+                position++;
+            }
+        }
+        return diff;
+    }
+
+    public ForecastRow[] getOldRows() {
+        return mOldRows;
+    }
+
+    public ForecastRow[] getNewRows() {
+        return mNewRows;
+    }
+
+    public boolean isEmpty() {
+        return mOperationCount == 0;
+    }
+
+    /**
+     * @return true if the first row of the new list is not the one of the old list
+     */
+    public boolean isFirstRowReplaced() {
+        if (mOldRows.length == 0 || mNewRows.length == 0) {
+            return mOldRows.length != mNewRows.length;
+        }
+        return mOldRows[0].date != mNewRows[0].date;
+    }
+
+    /**
+     * @return the position of the old first row in the new list, -1 if it isn't there anymore
+     */
+    public int getOldFirstRowPosition() {
+        return mOldFirstRowPosition;
+    }
+
+    /**
+     * Notifies the adapter of every change. It must show the old rows up to this call, and the
+     * new ones from then on.
+     */
+    public void dispatchTo(RecyclerView.Adapter adapter) {
+        for (int i = 0; i < mOperationCount; i += 3) {
+            int position = mOperations[i + 1];
+            int count = mOperations[i + 2];
+            switch (mOperations[i]) {
+                case INSERT:
+                    adapter.notifyItemRangeInserted(position, count);
+                    break;
+                case REMOVE:
+                    adapter.notifyItemRangeRemoved(position, count);
+                    break;
+                default:
+                    adapter.notifyItemRangeChanged(position, count);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < mOperationCount; i += 3) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(mOperations[i] == INSERT ? "insert "
+                    : mOperations[i] == REMOVE ? "remove " : "change ");
+            builder.append(mOperations[i + 1]).append('+').append(mOperations[i + 2]);
+        }
+        return builder.toString();
+    }
+
+    private void add(int kind, int position) {
+        if (mOperationCount > 0) {
+            int last = mOperationCount - 3;
+            int lastPosition = mOperations[last + 1];
+            int lastCount = mOperations[last + 2];
+            // removes all happen at the same position, the others one after the other
+            if (mOperations[last] == kind && (kind == REMOVE
+                    ? position == lastPosition : position == lastPosition + lastCount)) {
+                mOperations[last + 2]++;
+                return;
+            }
+        }
+        if (mOperationCount == mOperations.length) {
+            mOperations = Arrays.copyOf(mOperations, mOperations.length * 2);
+        }
+        mOperations[mOperationCount++] = kind;
+        mOperations[mOperationCount++] = position;
+        mOperations[mOperationCount++] = 1;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.net.Uri;
+import android.support.v4.content.CursorLoader;
+
+/**
+ * A {@link CursorLoader} for the forecast list that also builds the {@link ForecastRow}s of the
+ * cursor on its background thread, and compares them with the ones of its previous result.
+ */
+public class ForecastLoader extends CursorLoader {
+
+    private static final ForecastRow[] NO_ROWS = new ForecastRow[0];
+
+    // The rows of the last result, only used by the background loads, one after the other
+    private volatile ForecastRow[] mPreviousRows = NO_ROWS;
+
+    /**
+     * The cursor delivered by {@link ForecastLoader}, together with its rows.
+     */
+    public static class ForecastCursor extends CursorWrapper {
+        private final ForecastRow[] mRows;
+        private final ForecastDiff mDiff;
+
+        ForecastCursor(Cursor cursor, ForecastRow[] rows, ForecastDiff diff) {
+            super(cursor);
+            mRows = rows;
+            mDiff = diff;
+        }
+
+        public ForecastRow[] getRows() {
+            return mRows;
+        }
+
+        /**
+         * @return the changes from the previous result of the loader to this one
+         */
+        public ForecastDiff getDiff() {
+            return mDiff;
+        }
+    }
+
+    public ForecastLoader(Context context, Uri uri, String[] projection, String selection,
+            String[] selectionArgs, String sortOrder) {
+        super(context, uri, projection, selection, selectionArgs, sortOrder);
+    }
+
+    @Override
+    public Cursor loadInBackground() {
+        Cursor cursor = super.loadInBackground();
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            ForecastRow[] rows = ForecastRow.fromCursor(getContext(), cursor);
+            ForecastDiff diff = ForecastDiff.compute(mPreviousRows, rows);
+            mPreviousRows = rows;
+            return new ForecastCursor(cursor, rows, diff);
+        } catch (RuntimeException e) {
+            cursor.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.text.TextUtils;
+
+import com.example.android.sunshine.common.CommonUtils;
+
+/**
+ * Everything a row of the forecast list shows, read from the cursor and formatted ahead of time.
+ *
+ * {@link ForecastLoader} builds the rows on its background thread, so binding a row to its views
+ * is just copying these fields. The label of the day is the exception: "Today" and "Tomorrow"
+ * move on at midnight, so it is looked up when the row is bound, from {@link DayLabelCache}.
+ */
+public final class ForecastRow {
+
+    public final long id;
+    public final long date;
+    public final int weatherId;
+
+    // used by the layout of today
+    public final int artResource;
+    // used by the layout of the other days
+    public final int iconResource;
+    // null if the local graphics are used
+    public final String artUrl;
+
+    public final String description;
+    public final String descriptionA11y;
+    public final String highText;
+    public final String highA11y;
+    public final String lowText;
+    public final String lowA11y;
+
+    private ForecastRow(Context context, Cursor cursor) {
+        id = cursor.getLong(ForecastFragment.COL_WEATHER_ID);
+        date = cursor.getLong(ForecastFragment.COL_WEATHER_DATE);
+        weatherId = cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
+
+        artResource = CommonUtils.getArtResourceForWeatherCondition(weatherId);
+        iconResource = CommonUtils.getIconResourceForWeatherCondition(weatherId);
+        artUrl = Utility.usingLocalGraphics(context)
+                ? null : Utility.getArtUrlForWeatherCondition(context, weatherId);
+
+        description = Utility.getStringForWeatherCondition(context, weatherId);
+        descriptionA11y = context.getString(R.string.a11y_forecast, description);
+
+        highText = Utility.formatTemperature(context,
+                cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP));
+        highA11y = context.getString(R.string.a11y_high_temp, highText);
+        lowText = Utility.formatTemperature(context,
+                cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP));
+        lowA11y = context.getString(R.string.a11y_low_temp, lowText);
+    }
+
+    /**
+     * @return true if the row shows exactly the same as the given one
+     */
+    public boolean sameContentAs(ForecastRow other) {
+        return id == other.id
+                && date == other.date
+                && weatherId == other.weatherId
+                && artResource == other.artResource
+                && iconResource == other.iconResource
+                && TextUtils.equals(artUrl, other.artUrl)
+                && TextUtils.equals(description, other.description)
+                && TextUtils.equals(descriptionA11y, other.descriptionA11y)
+                && TextUtils.equals(highText, other.highText)
+                && TextUtils.equals(highA11y, other.highA11y)
+                && TextUtils.equals(lowText, other.lowText)
+                && TextUtils.equals(lowA11y, other.lowA11y);
+    }
+
+    /**
+     * Reads all rows of a cursor with the columns of the forecast list. The position of the
+     * cursor is not kept.
+     */
+    public static ForecastRow[] fromCursor(Context context, Cursor cursor) {
+        ForecastRow[] rows = new ForecastRow[cursor.getCount()];
+        for (int i = 0; i < rows.length; i++) {
+            cursor.moveToPosition(i);
+            rows[i] = new ForecastRow(context, cursor);
+        }
+        return rows;
+    }
+}
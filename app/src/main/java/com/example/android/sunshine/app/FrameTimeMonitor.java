@@ -0,0 +1,120 @@
+package com.example.android.sunshine.app;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.Locale;
+
+/**
+ * Measures the time between the frames drawn while it runs, and logs how many of them took
+ * longer than a frame should.
+ *
+ * Start it when something starts moving, like a scrolling list, and stop it when it stops.
+ * Frames are reported by {@link Choreographer}, which needs Jelly Bean. Before that this does
+ * nothing.
+ */
+public class FrameTimeMonitor {
+
+    private static final long FRAME_NANOS = 1000000000L / 60;
+    // A frame that took longer than this missed at least one vsync
+    private static final long JANK_NANOS = FRAME_NANOS * 3 / 2;
+
+    private final String mName;
+    private final Object mCallback;
+
+    private boolean mRunning;
+    private long mLastFrameNanos;
+    private int mFrames;
+    private int mJankyFrames;
+    private long mTotalNanos;
+    private long mMaxNanos;
+
+    public FrameTimeMonitor(String name) {
+        mName = name;
+        mCallback = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                ? new FrameCallback() : null;
+    }
+
+    /**
+     * Starts measuring, if it isn't already. Call it on the main thread.
+     */
+    public void start() {
+        if (mRunning || mCallback == null) {
+            return;
+        }
+        mRunning = true;
+        mLastFrameNanos = 0;
+        mFrames = 0;
+        mJankyFrames = 0;
+        mTotalNanos = 0;
+        mMaxNanos = 0;
+        postFrameCallback();
+    }
+
+    /**
+     * Stops measuring and logs the frame times since the start. Call it on the main thread.
+     */
+    public void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        removeFrameCallback();
+        if (mFrames > 0) {
+            Log.i(mName, toString());
+        }
+    }
+
+    public int getFrameCount() {
+        return mFrames;
+    }
+
+    public int getJankyFrameCount() {
+        return mJankyFrames;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%d frames, %d janky, avg %.1f ms, max %.1f ms",
+                mFrames, mJankyFrames, mFrames == 0 ? 0 : mTotalNanos / (mFrames * 1000000.0),
+                mMaxNanos / 1000000.0);
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mLastFrameNanos != 0) {
+            long nanos = frameTimeNanos - mLastFrameNanos;
+            mFrames++;
+            mTotalNanos += nanos;
+            mMaxNanos = Math.max(mMaxNanos, nanos);
+            if (nanos > JANK_NANOS) {
+                mJankyFrames++;
+            }
+        }
+        mLastFrameNanos = frameTimeNanos;
+        postFrameCallback();
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeFrameCallback() {
+        Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mCallback);
+    }
+
+    // A class of its own, so the older runtimes never load Choreographer.FrameCallback
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private class FrameCallback implements Choreographer.FrameCallback {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            onFrame(frameTimeNanos);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+/**
+ * The settings of the user as they were at one point in time.
+ *
+ * Formatting a row of the forecast list needs the units and the art pack, and reading them from
+ * {@link SharedPreferences} means a map lookup and several resource lookups every time. The
+ * current snapshot is built once and rebuilt by a listener only when one of its preferences
+ * changes, so the bind paths just read its fields.
+ */
+public final class SettingsSnapshot {
+
+    private static final Object sLock = new Object();
+    private static volatile SettingsSnapshot sCurrent;
+    // SharedPreferences only keeps weak references to its listeners, this one has to stay
+    private static Listener sListener;
+
+    public final String locationSetting;
+    public final boolean metric;
+    // url format of the art pack, takes the art key of the condition
+    public final String artPackUrlFormat;
+    public final boolean usingLocalGraphics;
+    public final boolean notificationsEnabled;
+
+    private SettingsSnapshot(Context context, SharedPreferences prefs) {
+        locationSetting = prefs.getString(context.getString(R.string.pref_location_key),
+                context.getString(R.string.pref_location_default));
+
+        String unitsMetric = context.getString(R.string.pref_units_metric);
+        metric = prefs.getString(context.getString(R.string.pref_units_key), unitsMetric)
+                .equals(unitsMetric);
+
+        String sunshineArtPack = context.getString(R.string.pref_art_pack_sunshine);
+        artPackUrlFormat = prefs.getString(context.getString(R.string.pref_art_pack_key),
+                sunshineArtPack);
+        usingLocalGraphics = artPackUrlFormat.equals(sunshineArtPack);
+
+        notificationsEnabled = prefs.getBoolean(
+                context.getString(R.string.pref_enable_notifications_key),
+                Boolean.parseBoolean(
+                        context.getString(R.string.pref_enable_notifications_default)));
+    }
+
+    /**
+     * @return the current settings, the first call reads them and starts listening for changes
+     */
+    public static SettingsSnapshot get(Context context) {
+        SettingsSnapshot current = sCurrent;
+        if (current != null) {
+            return current;
+        }
+        synchronized (sLock) {
+            if (sCurrent == null) {
+                Context appContext = context.getApplicationContext();
+                SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(appContext);
+                sListener = new Listener(appContext);
+                prefs.registerOnSharedPreferenceChangeListener(sListener);
+                sCurrent = new SettingsSnapshot(appContext, prefs);
+            }
+            return sCurrent;
+        }
+    }
+
+    private static class Listener implements SharedPreferences.OnSharedPreferenceChangeListener {
+        private final Context mContext;
+        private final String mLocationKey;
+        private final String mUnitsKey;
+        private final String mArtPackKey;
+        private final String mNotificationsKey;
+
+        Listener(Context context) {
+            mContext = context;
+            mLocationKey = context.getString(R.string.pref_location_key);
+            mUnitsKey = context.getString(R.string.pref_units_key);
+            mArtPackKey = context.getString(R.string.pref_art_pack_key);
+            mNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
+        }
+
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+            // the location status and the time of the last notification change with every
+            // sync, they don't need a new snapshot
+            if (key == null || key.equals(mLocationKey) || key.equals(mUnitsKey)
+                    || key.equals(mArtPackKey) || key.equals(mNotificationsKey)) {
+                synchronized (sLock) {
+                    sCurrent = new SettingsSnapshot(mContext, prefs);
+                }
+            }
+        }
+    }
+}
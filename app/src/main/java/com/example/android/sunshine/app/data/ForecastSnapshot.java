@@ -0,0 +1,97 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+/**
+ * Immutable copy of the stored weather of one location on one day.
+ */
+public class ForecastSnapshot {
+
+    // The columns a snapshot is read from, see fromCursor
+    static final String[] COLUMNS = {
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.COLUMN_DEGREES
+    };
+
+    // these indices must match COLUMNS
+    private static final int INDEX_DATE = 0;
+    private static final int INDEX_WEATHER_ID = 1;
+    private static final int INDEX_SHORT_DESC = 2;
+    private static final int INDEX_MAX_TEMP = 3;
+    private static final int INDEX_MIN_TEMP = 4;
+    private static final int INDEX_HUMIDITY = 5;
+    private static final int INDEX_PRESSURE = 6;
+    private static final int INDEX_WIND_SPEED = 7;
+    private static final int INDEX_DEGREES = 8;
+
+    public final String locationSetting;
+    // normalized date, see WeatherContract.normalizeDate
+    public final long date;
+    public final int weatherId;
+    public final String shortDesc;
+    public final double maxTemp;
+    public final double minTemp;
+    public final double humidity;
+    public final double pressure;
+    public final double windSpeed;
+    public final double degrees;
+
+    public ForecastSnapshot(String locationSetting, long date, int weatherId, String shortDesc,
+                            double maxTemp, double minTemp, double humidity, double pressure,
+                            double windSpeed, double degrees) {
+        this.locationSetting = locationSetting;
+        this.date = date;
+        this.weatherId = weatherId;
+        this.shortDesc = shortDesc;
+        this.maxTemp = maxTemp;
+        this.minTemp = minTemp;
+        this.humidity = humidity;
+        this.pressure = pressure;
+        this.windSpeed = windSpeed;
+        this.degrees = degrees;
+    }
+
+    /**
+     * @param values weather values as they are stored, including the date
+     */
+    public static ForecastSnapshot fromValues(String locationSetting, ContentValues values) {
+        return new ForecastSnapshot(
+                locationSetting,
+                WeatherContract.normalizeDate(values.getAsLong(WeatherEntry.COLUMN_DATE)),
+                values.getAsInteger(WeatherEntry.COLUMN_WEATHER_ID),
+                values.getAsString(WeatherEntry.COLUMN_SHORT_DESC),
+                values.getAsDouble(WeatherEntry.COLUMN_MAX_TEMP),
+                values.getAsDouble(WeatherEntry.COLUMN_MIN_TEMP),
+                values.getAsDouble(WeatherEntry.COLUMN_HUMIDITY),
+                values.getAsDouble(WeatherEntry.COLUMN_PRESSURE),
+                values.getAsDouble(WeatherEntry.COLUMN_WIND_SPEED),
+                values.getAsDouble(WeatherEntry.COLUMN_DEGREES));
+    }
+
+    /**
+     * @param cursor positioned on a row queried with {@link #COLUMNS}
+     */
+    static ForecastSnapshot fromCursor(String locationSetting, Cursor cursor) {
+        return new ForecastSnapshot(
+                locationSetting,
+                cursor.getLong(INDEX_DATE),
+                cursor.getInt(INDEX_WEATHER_ID),
+                cursor.getString(INDEX_SHORT_DESC),
+                cursor.getDouble(INDEX_MAX_TEMP),
+                cursor.getDouble(INDEX_MIN_TEMP),
+                cursor.getDouble(INDEX_HUMIDITY),
+                cursor.getDouble(INDEX_PRESSURE),
+                cursor.getDouble(INDEX_WIND_SPEED),
+                cursor.getDouble(INDEX_DEGREES));
+    }
+}
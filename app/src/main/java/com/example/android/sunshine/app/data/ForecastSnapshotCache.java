@@ -0,0 +1,155 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of {@link ForecastSnapshot}s, keyed by location setting and normalized
+ * date.
+ *
+ * After every sync the notification, the wearable, the today widget and Muzei all need the
+ * weather of today. The sync puts the days it just stored into the cache, so they can read it
+ * without a query. Every write through {@link WeatherProvider} clears the cache, so it never
+ * serves anything the database doesn't contain anymore. A miss is read from the provider and
+ * kept for the next reader.
+ *
+ * The map is never modified, every change replaces it. Reads don't need a lock.
+ */
+public class ForecastSnapshotCache {
+
+    private static final ForecastSnapshotCache sInstance = new ForecastSnapshotCache();
+
+    private volatile Map<String, ForecastSnapshot> mSnapshots = Collections.emptyMap();
+    // Incremented by every invalidation, so a load that raced with one is not stored
+    private long mGeneration;
+
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+
+    public static ForecastSnapshotCache getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * @param date any time of the day, it is normalized
+     * @return the stored weather of the location on that day, null if there is none
+     */
+    public ForecastSnapshot get(Context context, String locationSetting, long date) {
+        long normalizedDate = WeatherContract.normalizeDate(date);
+        String key = key(locationSetting, normalizedDate);
+        ForecastSnapshot snapshot = mSnapshots.get(key);
+        if (snapshot != null) {
+            mHits.incrementAndGet();
+            return snapshot;
+        }
+        mMisses.incrementAndGet();
+
+        return load(context, key, locationSetting,
+                WeatherContract.WeatherEntry.buildWeatherLocationWithDate(
+                        locationSetting, normalizedDate));
+    }
+
+    /**
+     * Like {@link #get(Context, String, long)}, but falls back to the first stored day after
+     * the date. After a sync that failed across midnight there is no today yet, showing
+     * tomorrow is better than showing nothing.
+     *
+     * @param date any time of the day, it is normalized
+     * @return the stored weather of the location on that day or the first one after it, null if
+     * there is none
+     */
+    public ForecastSnapshot getFirstFrom(Context context, String locationSetting, long date) {
+        long normalizedDate = WeatherContract.normalizeDate(date);
+        Map<String, ForecastSnapshot> snapshots = mSnapshots;
+        ForecastSnapshot snapshot = snapshots.get(key(locationSetting, normalizedDate));
+        if (snapshot == null) {
+            // kept apart from the days, it can be the snapshot of a later day
+            snapshot = snapshots.get(firstFromKey(locationSetting, normalizedDate));
+        }
+        if (snapshot != null) {
+            mHits.incrementAndGet();
+            return snapshot;
+        }
+        mMisses.incrementAndGet();
+
+        return load(context, firstFromKey(locationSetting, normalizedDate), locationSetting,
+                WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+                        locationSetting, normalizedDate));
+    }
+
+    // Reads the first row of the query and keeps it under the key
+    private ForecastSnapshot load(Context context, String key, String locationSetting,
+                                  Uri weatherUri) {
+        long generation;
+        synchronized (this) {
+            generation = mGeneration;
+        }
+        ForecastSnapshot snapshot;
+        Cursor cursor = context.getContentResolver().query(weatherUri, ForecastSnapshot.COLUMNS,
+                null, null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            snapshot = ForecastSnapshot.fromCursor(locationSetting, cursor);
+        } finally {
+            cursor.close();
+        }
+        synchronized (this) {
+            if (generation == mGeneration) {
+                Map<String, ForecastSnapshot> snapshots = new HashMap<>(mSnapshots);
+                snapshots.put(key, snapshot);
+                mSnapshots = Collections.unmodifiableMap(snapshots);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Adds the given snapshots, replacing the ones of the same location and day.
+     */
+    public synchronized void putAll(Collection<ForecastSnapshot> snapshots) {
+        Map<String, ForecastSnapshot> newSnapshots = new HashMap<>(mSnapshots);
+        for (ForecastSnapshot snapshot : snapshots) {
+            newSnapshots.put(key(snapshot.locationSetting, snapshot.date), snapshot);
+        }
+        mSnapshots = Collections.unmodifiableMap(newSnapshots);
+    }
+
+    public synchronized void invalidate() {
+        mGeneration++;
+        mSnapshots = Collections.emptyMap();
+    }
+
+    public long getHitCount() {
+        return mHits.get();
+    }
+
+    public long getMissCount() {
+        return mMisses.get();
+    }
+
+    @Override
+    public String toString() {
+        return mSnapshots.size() + " snapshots, " + mHits.get() + " hits, " + mMisses.get()
+                + " misses";
+    }
+
+    private static String key(String locationSetting, long normalizedDate) {
+        return locationSetting + '/' + normalizedDate;
+    }
+
+    private static String firstFromKey(String locationSetting, long normalizedDate) {
+        return locationSetting + '/' + normalizedDate + '+';
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.android.sunshine.app.data;
+
+import java.util.Locale;
+
+/**
+ * Latency of the queries answered by {@link WeatherProvider}, split by whether a write to the
+ * database was going on at the same time.
+ *
+ * The time measured is the time from the query until its first window of rows has been read,
+ * that includes waiting for the database. With write-ahead logging the queries running while
+ * the sync adapter writes should take about as long as the others.
+ *
+ * Reading the first window right away costs the callers that only need the first row, so nothing
+ * is measured until the stats are enabled, by a test or a benchmark.
+ */
+public class QueryLatencyStats {
+
+    private static final QueryLatencyStats sInstance = new QueryLatencyStats();
+
+    private final Bucket mIdle = new Bucket();
+    private final Bucket mDuringWrite = new Bucket();
+    private volatile boolean mEnabled;
+
+    /**
+     * Latencies of one kind of queries.
+     */
+    public static class Bucket {
+        public int count;
+        public long totalNanos;
+        public long maxNanos;
+
+        void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        void clear() {
+            count = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+        }
+
+        Bucket copy() {
+            Bucket copy = new Bucket();
+            copy.count = count;
+            copy.totalNanos = totalNanos;
+            copy.maxNanos = maxNanos;
+            return copy;
+        }
+
+        public double getAverageMillis() {
+            return count == 0 ? 0 : totalNanos / (count * 1000000.0);
+        }
+
+        public double getMaxMillis() {
+            return maxNanos / 1000000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d queries, avg %.2f ms, max %.2f ms",
+                    count, getAverageMillis(), getMaxMillis());
+        }
+    }
+
+    public static QueryLatencyStats getInstance() {
+        return sInstance;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    synchronized void record(long nanos, boolean duringWrite) {
+        (duringWrite ? mDuringWrite : mIdle).add(nanos);
+    }
+
+    /**
+     * @return a copy of the latencies of the queries that ran while nothing was written
+     */
+    public synchronized Bucket getIdle() {
+        return mIdle.copy();
+    }
+
+    /**
+     * @return a copy of the latencies of the queries that ran during a write
+     */
+    public synchronized Bucket getDuringWrite() {
+        return mDuringWrite.copy();
+    }
+
+    public synchronized void reset() {
+        mIdle.clear();
+        mDuringWrite.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "idle: " + mIdle + ", during write: " + mDuringWrite;
+    }
+}
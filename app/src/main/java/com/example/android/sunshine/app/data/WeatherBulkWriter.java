@@ -0,0 +1,230 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+/**
+ * Writes many weather rows through statements that are compiled once.
+ *
+ * {@link SQLiteDatabase#insert} compiles its SQL for every single row. The writer compiles its
+ * statements on first use and only rebinds their arguments for each row, the date of every row
+ * is normalized with the same {@link Time}. It is meant to be used within one
+ * transaction and has to be closed afterwards.
+ */
+class WeatherBulkWriter {
+
+    private static final String LOG_TAG = WeatherBulkWriter.class.getSimpleName();
+
+    // The bind index of every column is its position in this array + 1
+    private static final String[] COLUMNS = {
+            WeatherEntry.COLUMN_LOC_KEY,
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.COLUMN_DEGREES
+    };
+
+    private static final int INDEX_LOC_KEY = 1;
+    private static final int INDEX_DATE = 2;
+    private static final int INDEX_SHORT_DESC = 3;
+    private static final int INDEX_WEATHER_ID = 4;
+    private static final int INDEX_MIN_TEMP = 5;
+    private static final int INDEX_MAX_TEMP = 6;
+    private static final int INDEX_HUMIDITY = 7;
+    private static final int INDEX_PRESSURE = 8;
+    private static final int INDEX_WIND_SPEED = 9;
+    private static final int INDEX_DEGREES = 10;
+
+    // The table resolves (date, location_id) conflicts by replacing the old row
+    private static final String SQL_INSERT = buildInsert("INSERT");
+
+    // Used by the upsert after the update found nothing to write: inserts new rows and leaves
+    // existing (identical) rows alone
+    private static final String SQL_INSERT_IF_NEW = buildInsert("INSERT OR IGNORE");
+
+    // Updates the row of the same date and location, but only if any of its values differs
+    private static final String SQL_UPDATE_IF_CHANGED = buildUpdateIfChanged();
+
+    // changes() works on every API level, unlike SQLiteStatement.executeUpdateDelete()
+    private static final String SQL_CHANGES = "SELECT changes()";
+
+    private final SQLiteDatabase mDb;
+    private final Time mTime = new Time();
+
+    private SQLiteStatement mInsert;
+    private SQLiteStatement mInsertIfNew;
+    private SQLiteStatement mUpdateIfChanged;
+    private SQLiteStatement mChanges;
+
+    WeatherBulkWriter(SQLiteDatabase db) {
+        mDb = db;
+    }
+
+    /**
+     * Inserts the row, replacing an existing row of the same date and location.
+     *
+     * @return true if the row has been written
+     */
+    boolean insert(ContentValues values) {
+        if (!hasOnlyKnownColumns(values)) {
+            normalizeDate(values);
+            return mDb.insert(WeatherEntry.TABLE_NAME, null, values) != -1;
+        }
+        if (mInsert == null) {
+            mInsert = mDb.compileStatement(SQL_INSERT);
+        }
+        bind(mInsert, values);
+        try {
+            return mInsert.executeInsert() != -1;
+        } catch (SQLException e) {
+            // same as SQLiteDatabase.insert, a broken row doesn't stop the others
+            Log.e(LOG_TAG, "Error inserting " + values, e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the row only if there is no row of the same date and location yet or if that row
+     * has different values. An existing row is updated in place and keeps its _id.
+     *
+     * @return true if the row has been written
+     */
+    boolean upsert(ContentValues values) {
+        if (!hasOnlyKnownColumns(values)
+                || !values.containsKey(WeatherEntry.COLUMN_DATE)
+                || !values.containsKey(WeatherEntry.COLUMN_LOC_KEY)) {
+            // without the full set of columns there is nothing to compare with
+            return insert(values);
+        }
+        if (mUpdateIfChanged == null) {
+            mUpdateIfChanged = mDb.compileStatement(SQL_UPDATE_IF_CHANGED);
+            mInsertIfNew = mDb.compileStatement(SQL_INSERT_IF_NEW);
+            mChanges = mDb.compileStatement(SQL_CHANGES);
+        }
+        try {
+            bind(mUpdateIfChanged, values);
+            mUpdateIfChanged.execute();
+            if (mChanges.simpleQueryForLong() > 0) {
+                return true;
+            }
+            // either the row is identical or there is none yet
+            bind(mInsertIfNew, values);
+            return mInsertIfNew.executeInsert() != -1;
+        } catch (SQLException e) {
+            Log.e(LOG_TAG, "Error upserting " + values, e);
+            return false;
+        }
+    }
+
+    void close() {
+        closeStatement(mInsert);
+        closeStatement(mInsertIfNew);
+        closeStatement(mUpdateIfChanged);
+        closeStatement(mChanges);
+    }
+
+    private void bind(SQLiteStatement statement, ContentValues values) {
+        // missing values stay bound to NULL, which the table rejects
+        statement.clearBindings();
+
+        Long date = values.getAsLong(WeatherEntry.COLUMN_DATE);
+        if (date != null) {
+            long normalizedDate = WeatherContract.normalizeDate(date, mTime);
+            statement.bindLong(INDEX_DATE, normalizedDate);
+            if (normalizedDate != date) {
+                // callers get to see the stored date, like with SQLiteDatabase.insert
+                values.put(WeatherEntry.COLUMN_DATE, normalizedDate);
+            }
+        }
+        bindLong(statement, INDEX_LOC_KEY, values.getAsLong(WeatherEntry.COLUMN_LOC_KEY));
+        String shortDesc = values.getAsString(WeatherEntry.COLUMN_SHORT_DESC);
+        if (shortDesc != null) {
+            statement.bindString(INDEX_SHORT_DESC, shortDesc);
+        }
+        bindLong(statement, INDEX_WEATHER_ID, values.getAsLong(WeatherEntry.COLUMN_WEATHER_ID));
+        bindDouble(statement, INDEX_MIN_TEMP, values.getAsDouble(WeatherEntry.COLUMN_MIN_TEMP));
+        bindDouble(statement, INDEX_MAX_TEMP, values.getAsDouble(WeatherEntry.COLUMN_MAX_TEMP));
+        bindDouble(statement, INDEX_HUMIDITY, values.getAsDouble(WeatherEntry.COLUMN_HUMIDITY));
+        bindDouble(statement, INDEX_PRESSURE, values.getAsDouble(WeatherEntry.COLUMN_PRESSURE));
+        bindDouble(statement, INDEX_WIND_SPEED, values.getAsDouble(WeatherEntry.COLUMN_WIND_SPEED));
+        bindDouble(statement, INDEX_DEGREES, values.getAsDouble(WeatherEntry.COLUMN_DEGREES));
+    }
+
+    private static void bindLong(SQLiteStatement statement, int index, Long value) {
+        if (value != null) {
+            statement.bindLong(index, value);
+        }
+    }
+
+    private static void bindDouble(SQLiteStatement statement, int index, Double value) {
+        if (value != null) {
+            statement.bindDouble(index, value);
+        }
+    }
+
+    private void normalizeDate(ContentValues values) {
+        Long date = values.getAsLong(WeatherEntry.COLUMN_DATE);
+        if (date != null) {
+            values.put(WeatherEntry.COLUMN_DATE, WeatherContract.normalizeDate(date, mTime));
+        }
+    }
+
+    private static boolean hasOnlyKnownColumns(ContentValues values) {
+        int knownColumns = 0;
+        for (String column : COLUMNS) {
+            if (values.containsKey(column)) {
+                knownColumns++;
+            }
+        }
+        return knownColumns == values.size();
+    }
+
+    private static void closeStatement(SQLiteStatement statement) {
+        if (statement != null) {
+            statement.close();
+        }
+    }
+
+    private static String buildInsert(String verb) {
+        StringBuilder sql = new StringBuilder(verb).append(" INTO ")
+                .append(WeatherEntry.TABLE_NAME).append(" (");
+        for (int i = 0; i < COLUMNS.length; i++) {
+            sql.append(i > 0 ? ", " : "").append(COLUMNS[i]);
+        }
+        sql.append(") VALUES (");
+        for (int i = 0; i < COLUMNS.length; i++) {
+            sql.append(i > 0 ? ", " : "").append('?').append(i + 1);
+        }
+        return sql.append(')').toString();
+    }
+
+    private static String buildUpdateIfChanged() {
+        // UPDATE weather SET short_desc = ?3, ... WHERE location_id = ?1 AND date = ?2
+        //   AND (short_desc IS NOT ?3 OR ...)
+        StringBuilder set = new StringBuilder();
+        StringBuilder changed = new StringBuilder();
+        for (int i = INDEX_SHORT_DESC - 1; i < COLUMNS.length; i++) {
+            if (set.length() > 0) {
+                set.append(", ");
+                changed.append(" OR ");
+            }
+            set.append(COLUMNS[i]).append(" = ?").append(i + 1);
+            changed.append(COLUMNS[i]).append(" IS NOT ?").append(i + 1);
+        }
+        return "UPDATE " + WeatherEntry.TABLE_NAME + " SET " + set
+                + " WHERE " + WeatherEntry.COLUMN_LOC_KEY + " = ?" + INDEX_LOC_KEY
+                + " AND " + WeatherEntry.COLUMN_DATE + " = ?" + INDEX_DATE
+                + " AND (" + changed + ")";
+    }
+}
@@ -47,8 +47,13 @@ public class WeatherContract {
     // To make it easy to query for the exact date, we normalize all dates that go into
     // the database to the start of the the Julian day at UTC.
     public static long normalizeDate(long startDate) {
+        return normalizeDate(startDate, new Time());
+    }
+
+    // Same as normalizeDate(long) but reuses the given Time, for callers that normalize many
+    // dates in a row
+    public static long normalizeDate(long startDate, Time time) {
         // normalize the start date to the beginning of the (UTC) day
-        Time time = new Time();
         time.set(startDate);
         int julianDay = Time.getJulianDay(startDate, time.gmtoff);
         return time.setJulianDay(julianDay);
@@ -99,6 +104,9 @@ public class WeatherContract {
 
         public static final String TABLE_NAME = "weather";
 
+        // Index on (location, date) that covers the forecast list columns
+        public static final String INDEX_LOCATION_DATE = "weather_location_date_idx";
+
         // Column with the foreign key into the location table.
         public static final String COLUMN_LOC_KEY = "location_id";
         // Date, stored as long in milliseconds since the epoch
@@ -126,10 +134,28 @@ public class WeatherContract {
         // Degrees are meteorological degrees (e.g, 0 is north, 180 is south).  Stored as floats.
         public static final String COLUMN_DEGREES = "degrees";
 
+        // Query parameter that switches bulkInsert into upsert mode
+        public static final String PARAM_UPSERT = "upsert";
+
         public static Uri buildWeatherUri(long id) {
             return ContentUris.withAppendedId(CONTENT_URI, id);
         }
 
+        /*
+            bulkInsert on this Uri only writes the rows that differ from the stored ones.
+            Existing rows are updated in place (keeping their _id), rows with identical values
+            are left untouched. The returned count is the number of rows that changed, the rest
+            of the passed rows was unchanged.
+         */
+        public static Uri buildWeatherUpsertUri() {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(PARAM_UPSERT, Boolean.toString(true)).build();
+        }
+
+        public static boolean isUpsertUri(Uri uri) {
+            return Boolean.parseBoolean(uri.getQueryParameter(PARAM_UPSERT));
+        }
+
         /*
             Student: This is the buildWeatherLocation function you filled in.
          */
@@ -15,9 +15,13 @@
  */
 package com.example.android.sunshine.app.data;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
+import android.os.SystemClock;
 
 import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
@@ -28,12 +32,71 @@ import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 public class WeatherDbHelper extends SQLiteOpenHelper {
 
     // If you change the database schema, you must increment the database version.
-    private static final int DATABASE_VERSION = 2;
+    private static final int DATABASE_VERSION = 3;
 
     static final String DATABASE_NAME = "weather.db";
 
+    // How often the write-ahead log is copied back into the database at most
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 60 * 1000;
+
+    private long mLastCheckpoint;
+
     public WeatherDbHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // With write-ahead logging the queries of the UI, the widgets and Muzei read from their
+        // own connections and don't have to wait while the sync adapter writes
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            setWriteAheadLoggingEnabled(true);
+        }
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                && Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            enableWriteAheadLogging(db);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static void enableWriteAheadLogging(SQLiteDatabase db) {
+        if (!db.isReadOnly()) {
+            db.enableWriteAheadLogging();
+        }
+    }
+
+    /**
+     * Copies the write-ahead log back into the database if that didn't happen for a while.
+     * SQLite does this on its own once the log has grown big enough, the small writes of a
+     * sync would otherwise keep the log around and make every read look into it.
+     *
+     * The checkpoint is passive, it doesn't wait for readers or block them.
+     */
+    void checkpointIfDue(SQLiteDatabase db) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            return;
+        }
+        if (db.inTransaction()) {
+            // the checkpoint stays due for the next call outside of a transaction
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        synchronized (this) {
+            if (mLastCheckpoint != 0 && now - mLastCheckpoint < CHECKPOINT_INTERVAL_MILLIS) {
+                return;
+            }
+        }
+        // the pragma returns a row, so it has to run as a query
+        Cursor c = db.rawQuery("PRAGMA wal_checkpoint(PASSIVE)", null);
+        try {
+            c.moveToFirst();
+        } finally {
+            c.close();
+        }
+        synchronized (this) {
+            mLastCheckpoint = now;
+        }
     }
 
     @Override
@@ -79,8 +142,24 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
                 " UNIQUE (" + WeatherEntry.COLUMN_DATE + ", " +
                 WeatherEntry.COLUMN_LOC_KEY + ") ON CONFLICT REPLACE);";
 
+        // The provider looks up the weather of one location, by a start date or an exact date,
+        // ordered by date. The UNIQUE constraint above is indexed by date first, which doesn't
+        // help with that. This index starts with the location and the date and also holds the
+        // columns the list screens, widgets and Muzei ask for, so their queries never have to
+        // touch the table. The detail screen needs all columns but only reads a single row.
+        // The location side of the join is served by the UNIQUE index on location_setting.
+        final String SQL_CREATE_WEATHER_LOCATION_DATE_INDEX = "CREATE INDEX " +
+                WeatherEntry.INDEX_LOCATION_DATE + " ON " + WeatherEntry.TABLE_NAME + " (" +
+                WeatherEntry.COLUMN_LOC_KEY + ", " +
+                WeatherEntry.COLUMN_DATE + ", " +
+                WeatherEntry.COLUMN_WEATHER_ID + ", " +
+                WeatherEntry.COLUMN_SHORT_DESC + ", " +
+                WeatherEntry.COLUMN_MAX_TEMP + ", " +
+                WeatherEntry.COLUMN_MIN_TEMP + ");";
+
         sqLiteDatabase.execSQL(SQL_CREATE_LOCATION_TABLE);
         sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_TABLE);
+        sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_LOCATION_DATE_INDEX);
     }
 
     @Override
@@ -24,18 +24,23 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class WeatherProvider extends ContentProvider {
 
     // The URI Matcher used by this content provider.
     private static final UriMatcher sUriMatcher = buildUriMatcher();
     private WeatherDbHelper mOpenHelper;
 
+    // Number of bulk writes and deletes currently running, for the query latency stats
+    private final AtomicInteger mActiveWrites = new AtomicInteger();
+
     static final int WEATHER = 100;
     static final int WEATHER_WITH_LOCATION = 101;
     static final int WEATHER_WITH_LOCATION_AND_DATE = 102;
     static final int LOCATION = 300;
 
-    private static final SQLiteQueryBuilder sWeatherByLocationSettingQueryBuilder;
+    static final SQLiteQueryBuilder sWeatherByLocationSettingQueryBuilder;
 
     static{
         sWeatherByLocationSettingQueryBuilder = new SQLiteQueryBuilder();
@@ -52,18 +57,18 @@ public class WeatherProvider extends ContentProvider {
     }
 
     //location.location_setting = ?
-    private static final String sLocationSettingSelection =
+    static final String sLocationSettingSelection =
             WeatherContract.LocationEntry.TABLE_NAME+
                     "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? ";
 
     //location.location_setting = ? AND date >= ?
-    private static final String sLocationSettingWithStartDateSelection =
+    static final String sLocationSettingWithStartDateSelection =
             WeatherContract.LocationEntry.TABLE_NAME+
                     "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? AND " +
                     WeatherContract.WeatherEntry.COLUMN_DATE + " >= ? ";
 
     //location.location_setting = ? AND date = ?
-    private static final String sLocationSettingAndDaySelection =
+    static final String sLocationSettingAndDaySelection =
             WeatherContract.LocationEntry.TABLE_NAME +
                     "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? AND " +
                     WeatherContract.WeatherEntry.COLUMN_DATE + " = ? ";
@@ -174,6 +179,9 @@ public class WeatherProvider extends ContentProvider {
                         String sortOrder) {
         // Here's the switch statement that, given a URI, will determine what kind of request it is,
         // and query the database accordingly.
+        boolean measure = QueryLatencyStats.getInstance().isEnabled();
+        long start = measure ? System.nanoTime() : 0;
+        boolean duringWrite = measure && mActiveWrites.get() > 0;
         Cursor retCursor;
         switch (sUriMatcher.match(uri)) {
             // "weather/*/*"
@@ -218,6 +226,14 @@ public class WeatherProvider extends ContentProvider {
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
         retCursor.setNotificationUri(getContext().getContentResolver(), uri);
+        if (measure) {
+            // The query only runs when the cursor is first asked for its rows. Doing that here
+            // lets the stats include the time spent waiting for the database, but fills the
+            // window for callers that would only have read the first row.
+            retCursor.getCount();
+            QueryLatencyStats.getInstance().record(System.nanoTime() - start,
+                    duringWrite || mActiveWrites.get() > 0);
+        }
         return retCursor;
     }
 
@@ -251,6 +267,7 @@ public class WeatherProvider extends ContentProvider {
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
+        ForecastSnapshotCache.getInstance().invalidate();
         getContext().getContentResolver().notifyChange(uri, null);
         return returnUri;
     }
@@ -262,20 +279,27 @@ public class WeatherProvider extends ContentProvider {
         int rowsDeleted;
         // this makes delete all rows return the number of rows deleted
         if ( null == selection ) selection = "1";
-        switch (match) {
-            case WEATHER:
-                rowsDeleted = db.delete(
-                        WeatherContract.WeatherEntry.TABLE_NAME, selection, selectionArgs);
-                break;
-            case LOCATION:
-                rowsDeleted = db.delete(
-                        WeatherContract.LocationEntry.TABLE_NAME, selection, selectionArgs);
-                break;
-            default:
-                throw new UnsupportedOperationException("Unknown uri: " + uri);
+        mActiveWrites.incrementAndGet();
+        try {
+            switch (match) {
+                case WEATHER:
+                    rowsDeleted = db.delete(
+                            WeatherContract.WeatherEntry.TABLE_NAME, selection, selectionArgs);
+                    break;
+                case LOCATION:
+                    rowsDeleted = db.delete(
+                            WeatherContract.LocationEntry.TABLE_NAME, selection, selectionArgs);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unknown uri: " + uri);
+            }
+        } finally {
+            mActiveWrites.decrementAndGet();
         }
+        mOpenHelper.checkpointIfDue(db);
         // Because a null deletes all rows
         if (rowsDeleted != 0) {
+            ForecastSnapshotCache.getInstance().invalidate();
             getContext().getContentResolver().notifyChange(uri, null);
         }
         return rowsDeleted;
@@ -310,6 +334,7 @@ public class WeatherProvider extends ContentProvider {
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
         if (rowsUpdated != 0) {
+            ForecastSnapshotCache.getInstance().invalidate();
             getContext().getContentResolver().notifyChange(uri, null);
         }
         return rowsUpdated;
@@ -321,21 +346,31 @@ public class WeatherProvider extends ContentProvider {
         final int match = sUriMatcher.match(uri);
         switch (match) {
             case WEATHER:
+                // In upsert mode only the rows that differ from the stored ones are written
+                // and counted, see WeatherEntry.buildWeatherUpsertUri()
+                boolean upsert = WeatherContract.WeatherEntry.isUpsertUri(uri);
+                WeatherBulkWriter writer = new WeatherBulkWriter(db);
+                mActiveWrites.incrementAndGet();
                 db.beginTransaction();
                 int returnCount = 0;
                 try {
                     for (ContentValues value : values) {
-                        normalizeDate(value);
-                        long _id = db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, value);
-                        if (_id != -1) {
+                        if (upsert ? writer.upsert(value) : writer.insert(value)) {
                             returnCount++;
                         }
                     }
                     db.setTransactionSuccessful();
                 } finally {
+                    writer.close();
                     db.endTransaction();
+                    mActiveWrites.decrementAndGet();
+                }
+                mOpenHelper.checkpointIfDue(db);
+                if (!upsert || returnCount > 0) {
+                    ForecastSnapshotCache.getInstance().invalidate();
+                    getContext().getContentResolver().notifyChange(
+                            WeatherContract.WeatherEntry.CONTENT_URI, null);
                 }
-                getContext().getContentResolver().notifyChange(uri, null);
                 return returnCount;
             default:
                 return super.bulkInsert(uri, values);
@@ -0,0 +1,257 @@
+package com.example.android.sunshine.app.sync;
+
+import android.annotation.TargetApi;
+import android.content.ContentValues;
+import android.os.Build;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+
+/**
+ * Pull parser for the OpenWeatherMap daily forecast response.
+ *
+ * Instead of materializing the whole response as a String and then as a JSONObject tree, the
+ * response is read token by token and every day of the "list" array is handed to the
+ * {@link Callback} as soon as it has been read. Only the values of the current day are held in
+ * memory, independent of the number of days requested.
+ */
+@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+public class ForecastJsonParser {
+
+    // These are the names of the JSON objects that need to be extracted.
+
+    // Location information
+    private static final String OWM_CITY = "city";
+    private static final String OWM_CITY_NAME = "name";
+    private static final String OWM_COORD = "coord";
+
+    // Location coordinate
+    private static final String OWM_LATITUDE = "lat";
+    private static final String OWM_LONGITUDE = "lon";
+
+    // Weather information.  Each day's forecast info is an element of the "list" array.
+    private static final String OWM_LIST = "list";
+
+    private static final String OWM_PRESSURE = "pressure";
+    private static final String OWM_HUMIDITY = "humidity";
+    private static final String OWM_WINDSPEED = "speed";
+    private static final String OWM_WIND_DIRECTION = "deg";
+
+    // All temperatures are children of the "temp" object.
+    private static final String OWM_TEMPERATURE = "temp";
+    private static final String OWM_MAX = "max";
+    private static final String OWM_MIN = "min";
+
+    private static final String OWM_WEATHER = "weather";
+    private static final String OWM_DESCRIPTION = "main";
+    private static final String OWM_WEATHER_ID = "id";
+
+    private static final String OWM_MESSAGE_CODE = "cod";
+
+    /**
+     * Receives the parsed parts of the forecast in the order they appear in the response.
+     */
+    public interface Callback {
+        void onCity(String cityName, double lat, double lon);
+
+        /**
+         * @param dayIndex index of the day inside the "list" array, 0 being the first day
+         * @param weatherValues the weather columns of that day. Date and location key are not set.
+         */
+        void onDay(int dayIndex, ContentValues weatherValues);
+    }
+
+    private ForecastJsonParser() {
+    }
+
+    /**
+     * Parses the forecast read from the given reader. The reader is not closed, it is left
+     * positioned behind the end of the forecast.
+     *
+     * @return the message code of the response, {@link HttpURLConnection#HTTP_OK} if the
+     * response doesn't contain one
+     */
+    public static int parse(Reader in, Callback callback) throws IOException, JSONException {
+        int messageCode = HttpURLConnection.HTTP_OK;
+        boolean cityFound = false;
+
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_MESSAGE_CODE.equals(name)) {
+                messageCode = reader.nextInt();
+                if (messageCode != HttpURLConnection.HTTP_OK) {
+                    // there is nothing useful left in an error response
+                    return messageCode;
+                }
+            } else if (OWM_CITY.equals(name)) {
+                readCity(reader, callback);
+                cityFound = true;
+            } else if (OWM_LIST.equals(name)) {
+                readDays(reader, callback);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (!cityFound) {
+            throw new JSONException("No value for " + OWM_CITY);
+        }
+        return messageCode;
+    }
+
+    private static void readCity(JsonReader reader, Callback callback) throws IOException, JSONException {
+        String cityName = null;
+        double lat = Double.NaN;
+        double lon = Double.NaN;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_CITY_NAME.equals(name)) {
+                cityName = reader.nextString();
+            } else if (OWM_COORD.equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String coordName = reader.nextName();
+                    if (OWM_LATITUDE.equals(coordName)) {
+                        lat = reader.nextDouble();
+                    } else if (OWM_LONGITUDE.equals(coordName)) {
+                        lon = reader.nextDouble();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (cityName == null) {
+            throw new JSONException("No value for " + OWM_CITY_NAME);
+        }
+        if (Double.isNaN(lat) || Double.isNaN(lon)) {
+            throw new JSONException("No value for " + OWM_COORD);
+        }
+        callback.onCity(cityName, lat, lon);
+    }
+
+    private static void readDays(JsonReader reader, Callback callback) throws IOException, JSONException {
+        int dayIndex = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            callback.onDay(dayIndex++, readDay(reader));
+        }
+        reader.endArray();
+    }
+
+    private static ContentValues readDay(JsonReader reader) throws IOException, JSONException {
+        // These are the values that will be collected.
+        double pressure = Double.NaN;
+        int humidity = -1;
+        double windSpeed = Double.NaN;
+        double windDirection = Double.NaN;
+
+        double high = Double.NaN;
+        double low = Double.NaN;
+
+        String description = null;
+        int weatherId = -1;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_PRESSURE.equals(name)) {
+                pressure = reader.nextDouble();
+            } else if (OWM_HUMIDITY.equals(name)) {
+                humidity = reader.nextInt();
+            } else if (OWM_WINDSPEED.equals(name)) {
+                windSpeed = reader.nextDouble();
+            } else if (OWM_WIND_DIRECTION.equals(name)) {
+                windDirection = reader.nextDouble();
+            } else if (OWM_TEMPERATURE.equals(name)) {
+                // Temperatures are in a child object called "temp".  Try not to name variables
+                // "temp" when working with temperature.  It confuses everybody.
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String temperatureName = reader.nextName();
+                    if (OWM_MAX.equals(temperatureName)) {
+                        high = reader.nextDouble();
+                    } else if (OWM_MIN.equals(temperatureName)) {
+                        low = reader.nextDouble();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if (OWM_WEATHER.equals(name)) {
+                // Description is in a child array called "weather", which is 1 element long.
+                // That element also contains a weather code.
+                reader.beginArray();
+                boolean first = true;
+                while (reader.hasNext()) {
+                    if (!first || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    first = false;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String weatherName = reader.nextName();
+                        if (OWM_DESCRIPTION.equals(weatherName)) {
+                            description = reader.nextString();
+                        } else if (OWM_WEATHER_ID.equals(weatherName)) {
+                            weatherId = reader.nextInt();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        requireValue(!Double.isNaN(pressure), OWM_PRESSURE);
+        requireValue(humidity != -1, OWM_HUMIDITY);
+        requireValue(!Double.isNaN(windSpeed), OWM_WINDSPEED);
+        requireValue(!Double.isNaN(windDirection), OWM_WIND_DIRECTION);
+        requireValue(!Double.isNaN(high), OWM_MAX);
+        requireValue(!Double.isNaN(low), OWM_MIN);
+        requireValue(description != null, OWM_DESCRIPTION);
+        requireValue(weatherId != -1, OWM_WEATHER_ID);
+
+        ContentValues weatherValues = new ContentValues();
+
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, windDirection);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, description);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
+
+        return weatherValues;
+    }
+
+    private static void requireValue(boolean present, String name) throws JSONException {
+        if (!present) {
+            throw new JSONException("No value for " + name);
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package com.example.android.sunshine.app.sync;
+
+import android.annotation.TargetApi;
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Downloads and parses the forecasts of several locations at the same time.
+ *
+ * The engine only talks to the network: every location is fetched on a bounded worker pool and
+ * returned as a {@link LocationForecast}. Writing the results to the database is left to the
+ * caller so that all of them can be committed together.
+ *
+ * Downloads are conditional: the validators of the last stored response of a location are
+ * sent along, and a response the server reports as not modified - or whose body is identical
+ * to the last stored one - comes back as an unchanged forecast without any days.
+ */
+public class ForecastSyncEngine {
+
+    private static final String LOG_TAG = ForecastSyncEngine.class.getSimpleName();
+
+    // Upper bound of forecasts that get downloaded at the same time
+    private static final int MAX_PARALLEL_FETCHES = 4;
+
+    private static final String FORMAT = "json";
+    private static final String UNITS = "metric";
+    private static final int NUM_DAYS = 14;
+
+    private static final String BODY_HASH_ALGORITHM = "SHA-1";
+
+    private static final String ENCODING_GZIP = "gzip";
+    private static final String ENCODING_DEFLATE = "deflate";
+    private static final String CHARSET = "UTF-8";
+
+    /**
+     * The result of fetching the forecast of one location.
+     */
+    public static class LocationForecast {
+        public final String locationSetting;
+
+        @SunshineSyncAdapter.LocationStatus
+        public int status = SunshineSyncAdapter.LOCATION_STATUS_UNKNOWN;
+
+        public String cityName;
+        public double cityLatitude;
+        public double cityLongitude;
+
+        // The weather values of the forecast days in order, starting with today.
+        // Date and location key are not set.
+        public final Vector<ContentValues> days = new Vector<ContentValues>();
+
+        // True if the forecast is the same as the one stored by the last sync
+        public boolean unchanged;
+
+        // Time it took to download and parse the forecast
+        public long latencyMillis;
+
+        // Size of the body as transferred and after decompression
+        public long compressedBytes;
+        public long uncompressedBytes;
+
+        // Time it took to decode and parse the body
+        public long decodeMillis;
+
+        // The validators to record once the forecast has been stored
+        String url;
+        HttpValidatorCache.Entry validators;
+
+        LocationForecast(String locationSetting) {
+            this.locationSetting = locationSetting;
+        }
+    }
+
+    private final HttpValidatorCache mValidatorCache;
+
+    public ForecastSyncEngine(Context context) {
+        mValidatorCache = new HttpValidatorCache(context);
+    }
+
+    /**
+     * Fetches the forecasts of all given locations in parallel.
+     *
+     * @param locationSettings the location strings used to request updates from the server
+     * @param julianStartDay the local Julian day of the first forecast day
+     * @return one result per location, in the order of the given locations
+     */
+    public List<LocationForecast> fetchAll(List<String> locationSettings, final int julianStartDay) {
+        List<LocationForecast> results = new ArrayList<LocationForecast>(locationSettings.size());
+        if (locationSettings.isEmpty()) {
+            return results;
+        }
+
+        List<Callable<LocationForecast>> tasks = new ArrayList<Callable<LocationForecast>>(locationSettings.size());
+        for (final String locationSetting : locationSettings) {
+            tasks.add(new Callable<LocationForecast>() {
+                @Override
+                public LocationForecast call() throws Exception {
+                    return fetch(locationSetting, julianStartDay);
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(MAX_PARALLEL_FETCHES, locationSettings.size()));
+        try {
+            List<Future<LocationForecast>> futures = executor.invokeAll(tasks);
+            for (Future<LocationForecast> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // fetch handles the expected errors itself, don't let one location
+                    // break the others
+                    Log.e(LOG_TAG, "Error fetching forecast", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.w(LOG_TAG, "Sync interrupted", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Records the validators of a forecast after it has been stored, so that the next sync
+     * can skip it if nothing changed.
+     */
+    public void commitValidators(LocationForecast forecast) {
+        if (forecast.validators != null) {
+            mValidatorCache.put(forecast.url, forecast.validators);
+        }
+    }
+
+    /**
+     * Forgets the validators of a location, e.g. because its stored forecast is gone.
+     */
+    public void clearValidators(String locationSetting) {
+        mValidatorCache.remove(buildForecastUri(locationSetting).toString());
+    }
+
+    private static Uri buildForecastUri(String locationSetting) {
+        // Construct the URL for the OpenWeatherMap query
+        // Possible parameters are avaiable at OWM's forecast API page, at
+        // http://openweathermap.org/API#forecast
+        final String FORECAST_BASE_URL =
+                "http://api.openweathermap.org/data/2.5/forecast/daily?";
+        final String QUERY_PARAM = "q";
+        final String FORMAT_PARAM = "mode";
+        final String UNITS_PARAM = "units";
+        final String DAYS_PARAM = "cnt";
+
+        return Uri.parse(FORECAST_BASE_URL).buildUpon()
+                .appendQueryParameter(QUERY_PARAM, locationSetting)
+                .appendQueryParameter(FORMAT_PARAM, FORMAT)
+                .appendQueryParameter(UNITS_PARAM, UNITS)
+                .appendQueryParameter(DAYS_PARAM, Integer.toString(NUM_DAYS))
+                .build();
+    }
+
+    /**
+     * Downloads and parses the forecast of a single location.
+     */
+    LocationForecast fetch(String locationSetting, int julianStartDay) {
+        LocationForecast forecast = new LocationForecast(locationSetting);
+        long start = SystemClock.elapsedRealtime();
+
+        // These need to be declared outside the try/catch
+        // so that they can be closed and read in the finally block.
+        HttpURLConnection urlConnection = null;
+        Reader reader = null;
+        CountingInputStream compressedStream = null;
+        CountingInputStream uncompressedStream = null;
+
+        try {
+            forecast.url = buildForecastUri(locationSetting).toString();
+            URL url = new URL(forecast.url);
+
+            // Create the request to OpenWeatherMap, and open the connection
+            urlConnection = (HttpURLConnection) url.openConnection();
+            urlConnection.setRequestMethod("GET");
+            // Asking for a compressed body explicitly turns off the transparent decompression
+            // of HttpURLConnection, which lets us see the bytes actually transferred
+            urlConnection.setRequestProperty("Accept-Encoding", ENCODING_GZIP + ", " + ENCODING_DEFLATE);
+
+            // Only ask for the forecast if it changed since it has been stored the last time
+            HttpValidatorCache.Entry lastValidators = mValidatorCache.get(forecast.url, julianStartDay);
+            if (lastValidators != null) {
+                if (lastValidators.eTag != null) {
+                    urlConnection.setRequestProperty("If-None-Match", lastValidators.eTag);
+                }
+                if (lastValidators.lastModified != null) {
+                    urlConnection.setRequestProperty("If-Modified-Since", lastValidators.lastModified);
+                }
+            }
+            urlConnection.connect();
+
+            if (urlConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                forecast.status = SunshineSyncAdapter.LOCATION_STATUS_OK;
+                forecast.unchanged = true;
+                return forecast;
+            }
+
+            InputStream inputStream = urlConnection.getInputStream();
+            if (inputStream == null) {
+                // Nothing to do.
+                return forecast;
+            }
+            compressedStream = new CountingInputStream(inputStream);
+            inputStream = compressedStream;
+
+            String contentEncoding = urlConnection.getContentEncoding();
+            if (ENCODING_GZIP.equalsIgnoreCase(contentEncoding)) {
+                inputStream = new GZIPInputStream(inputStream);
+            } else if (ENCODING_DEFLATE.equalsIgnoreCase(contentEncoding)) {
+                inputStream = new InflaterInputStream(inputStream);
+            }
+            uncompressedStream = new CountingInputStream(inputStream);
+
+            // The body is hashed before it is parsed, so an identical response isn't parsed at
+            // all. It is a few kilobytes, held as bytes, not as a String and a tree of objects.
+            byte[] body;
+            try {
+                body = readFully(uncompressedStream);
+            } finally {
+                uncompressedStream.close();
+            }
+            MessageDigest bodyDigest = MessageDigest.getInstance(BODY_HASH_ALGORITHM);
+            String bodyHash = toHex(bodyDigest.digest(body));
+            if (lastValidators != null && bodyHash.equals(lastValidators.bodyHash)) {
+                forecast.status = SunshineSyncAdapter.LOCATION_STATUS_OK;
+                forecast.unchanged = true;
+                forecast.validators = new HttpValidatorCache.Entry(
+                        urlConnection.getHeaderField("ETag"),
+                        urlConnection.getHeaderField("Last-Modified"),
+                        bodyHash,
+                        julianStartDay);
+                return forecast;
+            }
+
+            // The bytes are decoded straight into the parser, JsonReader does its own buffering
+            reader = new InputStreamReader(new ByteArrayInputStream(body), CHARSET);
+            long decodeStart = SystemClock.elapsedRealtime();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+                // Read the days one by one instead of building a String and a JSONObject tree
+                getWeatherDataFromStream(reader, forecast);
+            } else {
+                readWeatherDataAsString(reader, forecast);
+            }
+            forecast.decodeMillis = SystemClock.elapsedRealtime() - decodeStart;
+
+            if (forecast.status == SunshineSyncAdapter.LOCATION_STATUS_OK) {
+                forecast.validators = new HttpValidatorCache.Entry(
+                        urlConnection.getHeaderField("ETag"),
+                        urlConnection.getHeaderField("Last-Modified"),
+                        bodyHash,
+                        julianStartDay);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error ", e);
+            // If the code didn't successfully get the weather data, there's no point in attempting
+            // to parse it.
+            forecast.status = SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN;
+        } catch (NoSuchAlgorithmException e) {
+            // every Android device ships with SHA-1
+            throw new RuntimeException(e);
+        } finally {
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException e) {
+                    Log.e(LOG_TAG, "Error closing stream", e);
+                }
+            }
+            if (compressedStream != null) {
+                forecast.compressedBytes = compressedStream.getCount();
+            }
+            if (uncompressedStream != null) {
+                forecast.uncompressedBytes = uncompressedStream.getCount();
+            }
+            forecast.latencyMillis = SystemClock.elapsedRealtime() - start;
+        }
+        return forecast;
+    }
+
+    private static void readWeatherDataAsString(Reader reader, LocationForecast forecast)
+            throws IOException {
+        // Read the input stream into a String
+        StringBuilder buffer = new StringBuilder();
+        char[] chars = new char[1024];
+
+        int count;
+        while ((count = reader.read(chars)) != -1) {
+            buffer.append(chars, 0, count);
+        }
+
+        if (buffer.length() == 0) {
+            // Stream was empty.  No point in parsing.
+            forecast.status = SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN;
+            return;
+        }
+        getWeatherDataFromJson(buffer.toString(), forecast);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[2048];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    private static String toHex(byte[] bytes) {
+        final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Reads the forecast in JSON Format from the given reader.
+     *
+     * Unlike {@link #getWeatherDataFromJson(String, LocationForecast)} the response is never
+     * held in memory as a whole: every day is turned into its ContentValues as soon as it has
+     * been read.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    static void getWeatherDataFromStream(Reader reader, final LocationForecast forecast)
+            throws IOException {
+        try {
+            int messageCode = ForecastJsonParser.parse(reader, new ForecastJsonParser.Callback() {
+                @Override
+                public void onCity(String cityName, double lat, double lon) {
+                    forecast.cityName = cityName;
+                    forecast.cityLatitude = lat;
+                    forecast.cityLongitude = lon;
+                }
+
+                @Override
+                public void onDay(int dayIndex, ContentValues weatherValues) {
+                    forecast.days.add(weatherValues);
+                }
+            });
+
+            forecast.status = getLocationStatus(messageCode);
+
+        } catch (JSONException | IllegalStateException | NumberFormatException e) {
+            // JsonReader reports unexpected tokens as IllegalStateException and malformed
+            // numbers as NumberFormatException
+            Log.e(LOG_TAG, e.getMessage(), e);
+            forecast.days.clear();
+            forecast.status = SunshineSyncAdapter.LOCATION_STATUS_SERVER_INVALID;
+        }
+    }
+
+    /**
+     * Take the String representing the complete forecast in JSON Format and
+     * pull out the data we need to construct the Strings needed for the wireframes.
+     *
+     * Fortunately parsing is easy:  constructor takes the JSON string and converts it
+     * into an Object hierarchy for us.
+     */
+    static void getWeatherDataFromJson(String forecastJsonStr, LocationForecast forecast) {
+
+        // These are the names of the JSON objects that need to be extracted.
+
+        // Location information
+        final String OWM_CITY = "city";
+        final String OWM_CITY_NAME = "name";
+        final String OWM_COORD = "coord";
+
+        // Location coordinate
+        final String OWM_LATITUDE = "lat";
+        final String OWM_LONGITUDE = "lon";
+
+        // Weather information.  Each day's forecast info is an element of the "list" array.
+        final String OWM_LIST = "list";
+
+        final String OWM_PRESSURE = "pressure";
+        final String OWM_HUMIDITY = "humidity";
+        final String OWM_WINDSPEED = "speed";
+        final String OWM_WIND_DIRECTION = "deg";
+
+        // All temperatures are children of the "temp" object.
+        final String OWM_TEMPERATURE = "temp";
+        final String OWM_MAX = "max";
+        final String OWM_MIN = "min";
+
+        final String OWM_WEATHER = "weather";
+        final String OWM_DESCRIPTION = "main";
+        final String OWM_WEATHER_ID = "id";
+
+        final String OWM_MESSAGE_CODE = "cod";
+
+        try {
+            JSONObject forecastJson = new JSONObject(forecastJsonStr);
+
+            // do we have an error?
+            if ( forecastJson.has(OWM_MESSAGE_CODE) ) {
+                int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
+                if (errorCode != HttpURLConnection.HTTP_OK) {
+                    forecast.status = getLocationStatus(errorCode);
+                    return;
+                }
+            }
+
+            JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
+
+            JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
+            forecast.cityName = cityJson.getString(OWM_CITY_NAME);
+
+            JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
+            forecast.cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
+            forecast.cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
+
+            for(int i = 0; i < weatherArray.length(); i++) {
+                // These are the values that will be collected.
+                double pressure;
+                int humidity;
+                double windSpeed;
+                double windDirection;
+
+                double high;
+                double low;
+
+                String description;
+                int weatherId;
+
+                // Get the JSON object representing the day
+                JSONObject dayForecast = weatherArray.getJSONObject(i);
+
+                pressure = dayForecast.getDouble(OWM_PRESSURE);
+                humidity = dayForecast.getInt(OWM_HUMIDITY);
+                windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
+                windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
+
+                // Description is in a child array called "weather", which is 1 element long.
+                // That element also contains a weather code.
+                JSONObject weatherObject =
+                        dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
+                description = weatherObject.getString(OWM_DESCRIPTION);
+                weatherId = weatherObject.getInt(OWM_WEATHER_ID);
+
+                // Temperatures are in a child object called "temp".  Try not to name variables
+                // "temp" when working with temperature.  It confuses everybody.
+                JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
+                high = temperatureObject.getDouble(OWM_MAX);
+                low = temperatureObject.getDouble(OWM_MIN);
+
+                ContentValues weatherValues = new ContentValues();
+
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, windDirection);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, description);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
+
+                forecast.days.add(weatherValues);
+            }
+
+            forecast.status = SunshineSyncAdapter.LOCATION_STATUS_OK;
+
+        } catch (JSONException e) {
+            Log.e(LOG_TAG, e.getMessage(), e);
+            forecast.days.clear();
+            forecast.status = SunshineSyncAdapter.LOCATION_STATUS_SERVER_INVALID;
+        }
+    }
+
+    @SunshineSyncAdapter.LocationStatus
+    private static int getLocationStatus(int messageCode) {
+        switch (messageCode) {
+            case HttpURLConnection.HTTP_OK:
+                return SunshineSyncAdapter.LOCATION_STATUS_OK;
+            case HttpURLConnection.HTTP_NOT_FOUND:
+                return SunshineSyncAdapter.LOCATION_STATUS_INVALID;
+            default:
+                return SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Persistent store for the HTTP validators of the forecast downloads.
+ *
+ * For every forecast URL the ETag and Last-Modified headers of the last stored response are
+ * kept together with a hash of its body, so that the next sync can ask the server whether
+ * anything has changed and can recognize identical responses.
+ *
+ * Dates of the stored forecast rows are derived from the day the sync runs on, so the
+ * validators are only valid on the (local) Julian day they have been recorded.
+ */
+public class HttpValidatorCache {
+
+    private static final String PREF_NAME = "forecast_http_validators";
+
+    private static final String KEY_ETAG = "etag:";
+    private static final String KEY_LAST_MODIFIED = "last_modified:";
+    private static final String KEY_BODY_HASH = "body_hash:";
+    private static final String KEY_JULIAN_DAY = "julian_day:";
+
+    /**
+     * The validators recorded for one forecast URL.
+     */
+    public static class Entry {
+        public final String eTag;
+        public final String lastModified;
+        public final String bodyHash;
+        public final int julianDay;
+
+        public Entry(String eTag, String lastModified, String bodyHash, int julianDay) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.bodyHash = bodyHash;
+            this.julianDay = julianDay;
+        }
+    }
+
+    private final SharedPreferences mPrefs;
+
+    public HttpValidatorCache(Context context) {
+        mPrefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @param url the built forecast URL
+     * @param julianDay the local Julian day of the running sync
+     * @return the validators of the given URL or null if there are none for that day
+     */
+    public Entry get(String url, int julianDay) {
+        if (mPrefs.getInt(KEY_JULIAN_DAY + url, -1) != julianDay) {
+            return null;
+        }
+        return new Entry(
+                mPrefs.getString(KEY_ETAG + url, null),
+                mPrefs.getString(KEY_LAST_MODIFIED + url, null),
+                mPrefs.getString(KEY_BODY_HASH + url, null),
+                julianDay);
+    }
+
+    public void put(String url, Entry entry) {
+        mPrefs.edit()
+                .putString(KEY_ETAG + url, entry.eTag)
+                .putString(KEY_LAST_MODIFIED + url, entry.lastModified)
+                .putString(KEY_BODY_HASH + url, entry.bodyHash)
+                .putInt(KEY_JULIAN_DAY + url, entry.julianDay)
+                .apply();
+    }
+
+    public void remove(String url) {
+        mPrefs.edit()
+                .remove(KEY_ETAG + url)
+                .remove(KEY_LAST_MODIFIED + url)
+                .remove(KEY_BODY_HASH + url)
+                .remove(KEY_JULIAN_DAY + url)
+                .apply();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.android.sunshine.app.sync;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands the result of a sync to the widgets, Muzei, the notification and the wearable.
+ *
+ * The consumers run in parallel on a small pool, so a slow one, like the notification loading
+ * its icon, doesn't hold up the others. {@link #dispatch(PostSyncPayload)} waits for them, at
+ * most {@link #MAX_DISPATCH_MILLIS}, so they run while the sync still keeps the device awake.
+ * A consumer that is still busy with an earlier payload after that, because it doesn't stop when
+ * interrupted, is skipped until it is done. The time every consumer takes is recorded and logged.
+ */
+public class PostSyncDispatcher {
+
+    private static final String LOG_TAG = PostSyncDispatcher.class.getSimpleName();
+
+    static final long MAX_DISPATCH_MILLIS = 30000;
+
+    /**
+     * Something that shows the weather and has to be updated after a sync.
+     */
+    public interface Consumer {
+        String getName();
+
+        void onWeatherUpdated(PostSyncPayload payload);
+    }
+
+    /**
+     * A consumer that is only told that there is new weather. It reads what it shows itself,
+     * usually from {@link com.example.android.sunshine.app.data.ForecastSnapshotCache}, which
+     * the sync filled.
+     */
+    public abstract static class Signal implements Consumer {
+        @Override
+        public final void onWeatherUpdated(PostSyncPayload payload) {
+            onWeatherUpdated();
+        }
+
+        public abstract void onWeatherUpdated();
+    }
+
+    /**
+     * How long a consumer took to handle the payloads.
+     */
+    public static class ConsumerStats {
+        public int count;
+        public long totalMillis;
+        public long maxMillis;
+        // payloads the consumer didn't get because it was still busy
+        public int skipped;
+
+        synchronized void add(long millis) {
+            count++;
+            totalMillis += millis;
+            maxMillis = Math.max(maxMillis, millis);
+        }
+
+        synchronized void skip() {
+            skipped++;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(Locale.US, "%d runs, avg %d ms, max %d ms, %d skipped",
+                    count, count == 0 ? 0 : totalMillis / count, maxMillis, skipped);
+        }
+    }
+
+    private final List<Consumer> mConsumers = new ArrayList<>();
+    private final List<ConsumerStats> mStats = new ArrayList<>();
+    // Set while the consumer of the same index runs
+    private final List<AtomicBoolean> mBusy = new ArrayList<>();
+    private final long mMaxDispatchMillis;
+    private final ThreadPoolExecutor mExecutor;
+
+    public PostSyncDispatcher(Consumer... consumers) {
+        this(MAX_DISPATCH_MILLIS, consumers);
+    }
+
+    PostSyncDispatcher(long maxDispatchMillis, Consumer... consumers) {
+        mMaxDispatchMillis = maxDispatchMillis;
+        for (Consumer consumer : consumers) {
+            mConsumers.add(consumer);
+            mStats.add(new ConsumerStats());
+            mBusy.add(new AtomicBoolean());
+        }
+
+        // one thread for every consumer, they are only kept while there is work
+        mExecutor = new ThreadPoolExecutor(consumers.length, consumers.length,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Dispatches the payload to all consumers and waits until they are done, at most
+     * {@link #MAX_DISPATCH_MILLIS}. Calls from several threads are handled one after the other.
+     */
+    public synchronized void dispatch(final PostSyncPayload payload) throws InterruptedException {
+        List<Callable<Void>> tasks = new ArrayList<>(mConsumers.size());
+        for (int i = 0; i < mConsumers.size(); i++) {
+            final Consumer consumer = mConsumers.get(i);
+            final ConsumerStats stats = mStats.get(i);
+            final AtomicBoolean busy = mBusy.get(i);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    if (!busy.compareAndSet(false, true)) {
+                        // still stuck with an earlier payload, waiting for it would take the
+                        // time of all the others
+                        stats.skip();
+                        Log.w(LOG_TAG, "Skipped " + consumer.getName() + ", still busy");
+                        return null;
+                    }
+                    long start = SystemClock.elapsedRealtime();
+                    try {
+                        consumer.onWeatherUpdated(payload);
+                    } catch (RuntimeException e) {
+                        // the other consumers still get their update
+                        Log.e(LOG_TAG, "Error updating " + consumer.getName(), e);
+                    } finally {
+                        busy.set(false);
+                    }
+                    stats.add(SystemClock.elapsedRealtime() - start);
+                    Log.d(LOG_TAG, "Updated " + consumer.getName() + ": " + stats);
+                    return null;
+                }
+            });
+        }
+        // the consumers that aren't done in time are interrupted
+        mExecutor.invokeAll(tasks, mMaxDispatchMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the threads of the consumers. Nothing can be dispatched after this.
+     */
+    public void release() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * @return how long the consumer took so far, in the order of the constructor
+     */
+    public ConsumerStats getStats(int consumer) {
+        return mStats.get(consumer);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.android.sunshine.app.sync;
+
+import com.example.android.sunshine.app.data.ForecastSnapshot;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a sync stored for the preferred location, handed to everything that shows the weather
+ * outside of the app once the sync is done.
+ */
+public class PostSyncPayload {
+
+    public final String locationSetting;
+    // null if the sync didn't store today
+    public final ForecastSnapshot today;
+    // all stored days, ordered by date, today included
+    public final List<ForecastSnapshot> forecast;
+    public final long syncTimeMillis;
+
+    PostSyncPayload(String locationSetting, ForecastSnapshot today,
+                    List<ForecastSnapshot> forecast, long syncTimeMillis) {
+        this.locationSetting = locationSetting;
+        this.today = today;
+        this.forecast = Collections.unmodifiableList(forecast);
+        this.syncTimeMillis = syncTimeMillis;
+    }
+}
@@ -32,24 +32,20 @@ import android.util.Log;
 import com.bumptech.glide.Glide;
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.SettingsSnapshot;
 import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.ForecastSnapshot;
+import com.example.android.sunshine.app.data.ForecastSnapshotCache;
+import com.example.android.sunshine.app.data.QueryLatencyStats;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.muzei.WeatherMuzeiSource;
 import com.example.android.sunshine.app.wear.WearUpdateHelper;
 import com.example.android.sunshine.common.CommonUtils;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Vector;
 import java.util.concurrent.ExecutionException;
 
@@ -64,20 +60,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
     private static final int WEATHER_NOTIFICATION_ID = 3004;
 
-
-    private static final String[] NOTIFY_WEATHER_PROJECTION = new String[] {
-            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
-    };
-
-    // these indices must match the projection
-    private static final int INDEX_WEATHER_ID = 0;
-    private static final int INDEX_MAX_TEMP = 1;
-    private static final int INDEX_MIN_TEMP = 2;
-    private static final int INDEX_SHORT_DESC = 3;
-
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({LOCATION_STATUS_OK, LOCATION_STATUS_SERVER_DOWN, LOCATION_STATUS_SERVER_INVALID,  LOCATION_STATUS_UNKNOWN, LOCATION_STATUS_INVALID})
     public @interface LocationStatus {}
@@ -89,276 +71,247 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     public static final int LOCATION_STATUS_INVALID = 4;
 
     private WearUpdateHelper mWearUpdateHelper;
+    private ForecastSyncEngine mSyncEngine;
+    private PostSyncDispatcher mPostSyncDispatcher;
 
     public SunshineSyncAdapter(Context context, boolean autoInitialize) {
         super(context, autoInitialize);
         mWearUpdateHelper = new WearUpdateHelper(context);
-    }
+        mSyncEngine = new ForecastSyncEngine(context);
+        mPostSyncDispatcher = new PostSyncDispatcher(
+                new PostSyncDispatcher.Signal() {
+                    @Override
+                    public String getName() {
+                        return "widgets";
+                    }
 
-    @Override
-    public void onPerformSync(Account account, Bundle extras, String authority, ContentProviderClient provider, SyncResult syncResult) {
-        Log.d(LOG_TAG, "Starting sync");
-        String locationQuery = Utility.getPreferredLocation(getContext());
-
-        // These two need to be declared outside the try/catch
-        // so that they can be closed in the finally block.
-        HttpURLConnection urlConnection = null;
-        BufferedReader reader = null;
-
-        // Will contain the raw JSON response as a string.
-        String forecastJsonStr = null;
-
-        String format = "json";
-        String units = "metric";
-        int numDays = 14;
-
-        try {
-            // Construct the URL for the OpenWeatherMap query
-            // Possible parameters are avaiable at OWM's forecast API page, at
-            // http://openweathermap.org/API#forecast
-            final String FORECAST_BASE_URL =
-                    "http://api.openweathermap.org/data/2.5/forecast/daily?";
-            final String QUERY_PARAM = "q";
-            final String FORMAT_PARAM = "mode";
-            final String UNITS_PARAM = "units";
-            final String DAYS_PARAM = "cnt";
-
-            Uri builtUri = Uri.parse(FORECAST_BASE_URL).buildUpon()
-                    .appendQueryParameter(QUERY_PARAM, locationQuery)
-                    .appendQueryParameter(FORMAT_PARAM, format)
-                    .appendQueryParameter(UNITS_PARAM, units)
-                    .appendQueryParameter(DAYS_PARAM, Integer.toString(numDays))
-                    .build();
-
-            URL url = new URL(builtUri.toString());
-
-            // Create the request to OpenWeatherMap, and open the connection
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
-
-            // Read the input stream into a String
-            InputStream inputStream = urlConnection.getInputStream();
-            StringBuffer buffer = new StringBuffer();
-            if (inputStream == null) {
-                // Nothing to do.
-                return;
-            }
-            reader = new BufferedReader(new InputStreamReader(inputStream));
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Since it's JSON, adding a newline isn't necessary (it won't affect parsing)
-                // But it does make debugging a *lot* easier if you print out the completed
-                // buffer for debugging.
-                buffer.append(line + "\n");
-            }
+                    @Override
+                    public void onWeatherUpdated() {
+                        updateWidgets();
+                    }
+                },
+                new PostSyncDispatcher.Signal() {
+                    @Override
+                    public String getName() {
+                        return "muzei";
+                    }
 
-            if (buffer.length() == 0) {
-                // Stream was empty.  No point in parsing.
-                setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
-                return;
-            }
-            forecastJsonStr = buffer.toString();
-            getWeatherDataFromJson(forecastJsonStr, locationQuery);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Error ", e);
-            // If the code didn't successfully get the weather data, there's no point in attempting
-            // to parse it.
-            setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
-        } catch (JSONException e) {
-            Log.e(LOG_TAG, e.getMessage(), e);
-            e.printStackTrace();
-            setLocationStatus(getContext(), LOCATION_STATUS_SERVER_INVALID);
-        } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (final IOException e) {
-                    Log.e(LOG_TAG, "Error closing stream", e);
-                }
-            }
-        }
-        return;
-    }
+                    @Override
+                    public void onWeatherUpdated() {
+                        updateMuzei();
+                    }
+                },
+                new PostSyncDispatcher.Consumer() {
+                    @Override
+                    public String getName() {
+                        return "notification";
+                    }
 
-    /**
-     * Take the String representing the complete forecast in JSON Format and
-     * pull out the data we need to construct the Strings needed for the wireframes.
-     *
-     * Fortunately parsing is easy:  constructor takes the JSON string and converts it
-     * into an Object hierarchy for us.
-     */
-    private void getWeatherDataFromJson(String forecastJsonStr,
-                                        String locationSetting)
-            throws JSONException {
-
-        // Now we have a String representing the complete forecast in JSON Format.
-        // Fortunately parsing is easy:  constructor takes the JSON string and converts it
-        // into an Object hierarchy for us.
-
-        // These are the names of the JSON objects that need to be extracted.
-
-        // Location information
-        final String OWM_CITY = "city";
-        final String OWM_CITY_NAME = "name";
-        final String OWM_COORD = "coord";
-
-        // Location coordinate
-        final String OWM_LATITUDE = "lat";
-        final String OWM_LONGITUDE = "lon";
-
-        // Weather information.  Each day's forecast info is an element of the "list" array.
-        final String OWM_LIST = "list";
-
-        final String OWM_PRESSURE = "pressure";
-        final String OWM_HUMIDITY = "humidity";
-        final String OWM_WINDSPEED = "speed";
-        final String OWM_WIND_DIRECTION = "deg";
-
-        // All temperatures are children of the "temp" object.
-        final String OWM_TEMPERATURE = "temp";
-        final String OWM_MAX = "max";
-        final String OWM_MIN = "min";
-
-        final String OWM_WEATHER = "weather";
-        final String OWM_DESCRIPTION = "main";
-        final String OWM_WEATHER_ID = "id";
-
-        final String OWM_MESSAGE_CODE = "cod";
-
-        try {
-            JSONObject forecastJson = new JSONObject(forecastJsonStr);
-
-            // do we have an error?
-            if ( forecastJson.has(OWM_MESSAGE_CODE) ) {
-                int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
-
-                switch (errorCode) {
-                    case HttpURLConnection.HTTP_OK:
-                        break;
-                    case HttpURLConnection.HTTP_NOT_FOUND:
-                        setLocationStatus(getContext(), LOCATION_STATUS_INVALID);
-                        return;
-                    default:
-                        setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
-                        return;
-                }
-            }
+                    @Override
+                    public void onWeatherUpdated(PostSyncPayload payload) {
+                        notifyWeather(payload);
+                    }
+                },
+                new PostSyncDispatcher.Consumer() {
+                    @Override
+                    public String getName() {
+                        return "wear";
+                    }
 
-            JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
+                    @Override
+                    public void onWeatherUpdated(PostSyncPayload payload) {
+                        mWearUpdateHelper.doUpdate(payload);
+                    }
+                });
+    }
 
-            JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
-            String cityName = cityJson.getString(OWM_CITY_NAME);
+    @Override
+    public void onPerformSync(Account account, Bundle extras, String authority, ContentProviderClient provider, SyncResult syncResult) {
+        Log.d(LOG_TAG, "Starting sync");
+        String preferredLocation = Utility.getPreferredLocation(getContext());
 
-            JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
-            double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
-            double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
+        // OWM returns daily forecasts based upon the local time of the city that is being
+        // asked for, which means that we need to know the GMT offset to translate this data
+        // properly.
 
-            long locationId = addLocation(locationSetting, cityName, cityLatitude, cityLongitude);
+        // Since this data is also sent in-order and the first day is always the
+        // current day, we're going to take advantage of that to get a nice
+        // normalized UTC date for all of our weather.
 
-            // Insert the new weather information into the database
-            Vector<ContentValues> cVVector = new Vector<ContentValues>(weatherArray.length());
+        Time dayTime = new Time();
+        dayTime.setToNow();
 
-            // OWM returns daily forecasts based upon the local time of the city that is being
-            // asked for, which means that we need to know the GMT offset to translate this data
-            // properly.
+        // we start at the day returned by local time. Otherwise this is a mess.
+        int julianStartDay = Time.getJulianDay(System.currentTimeMillis(), dayTime.gmtoff);
 
-            // Since this data is also sent in-order and the first day is always the
-            // current day, we're going to take advantage of that to get a nice
-            // normalized UTC date for all of our weather.
+        List<ForecastSyncEngine.LocationForecast> forecasts =
+                mSyncEngine.fetchAll(getLocationSettings(preferredLocation), julianStartDay);
 
-            Time dayTime = new Time();
-            dayTime.setToNow();
+        storeWeatherData(preferredLocation, forecasts, julianStartDay);
+    }
 
-            // we start at the day returned by local time. Otherwise this is a mess.
-            int julianStartDay = Time.getJulianDay(System.currentTimeMillis(), dayTime.gmtoff);
+    /**
+     * Collects the locations to sync: the preferred location first, followed by every other
+     * location that is already known to the database.
+     */
+    private List<String> getLocationSettings(String preferredLocation) {
+        List<String> locationSettings = new ArrayList<String>();
+        locationSettings.add(preferredLocation);
+        boolean preferredLocationStored = false;
 
-            // now we work exclusively in UTC
-            dayTime = new Time();
+        Cursor locationCursor = getContext().getContentResolver().query(
+                WeatherContract.LocationEntry.CONTENT_URI,
+                new String[]{WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING},
+                null,
+                null,
+                null);
 
-            for(int i = 0; i < weatherArray.length(); i++) {
-                // These are the values that will be collected.
-                long dateTime;
-                double pressure;
-                int humidity;
-                double windSpeed;
-                double windDirection;
+        if (locationCursor != null) {
+            while (locationCursor.moveToNext()) {
+                String locationSetting = locationCursor.getString(0);
+                if (!locationSettings.contains(locationSetting)) {
+                    locationSettings.add(locationSetting);
+                } else {
+                    preferredLocationStored = true;
+                }
+            }
+            locationCursor.close();
+        }
 
-                double high;
-                double low;
+        if (!preferredLocationStored) {
+            // the database doesn't know about the location (anymore), so a response that
+            // "didn't change" still has to be stored
+            mSyncEngine.clearValidators(preferredLocation);
+        }
+        return locationSettings;
+    }
 
-                String description;
-                int weatherId;
+    /**
+     * Stores the fetched forecasts of all locations in a single bulk insert and notifies
+     * everybody interested in the new data.
+     *
+     * @param preferredLocation the location the user has chosen, which decides about the
+     *                          location status and the notifications
+     * @param forecasts the fetched forecasts
+     * @param julianStartDay the local Julian day of the first forecast day
+     */
+    private void storeWeatherData(String preferredLocation,
+                                  List<ForecastSyncEngine.LocationForecast> forecasts,
+                                  int julianStartDay) {
+        // we work exclusively in UTC
+        Time dayTime = new Time();
+
+        Vector<ContentValues> cVVector = new Vector<ContentValues>();
+        ForecastSyncEngine.LocationForecast preferredForecast = null;
+        long compressedBytes = 0;
+        long uncompressedBytes = 0;
+        long decodeMillis = 0;
+
+        for (ForecastSyncEngine.LocationForecast forecast : forecasts) {
+            Log.d(LOG_TAG, "Fetched " + forecast.locationSetting + " in " + forecast.latencyMillis
+                    + " ms (status " + forecast.status + ", " + forecast.days.size() + " days)");
+            compressedBytes += forecast.compressedBytes;
+            uncompressedBytes += forecast.uncompressedBytes;
+            decodeMillis += forecast.decodeMillis;
+
+            if (forecast.locationSetting.equals(preferredLocation)) {
+                preferredForecast = forecast;
+            }
+            if (forecast.status != LOCATION_STATUS_OK || forecast.unchanged || forecast.days.isEmpty()) {
+                continue;
+            }
 
-                // Get the JSON object representing the day
-                JSONObject dayForecast = weatherArray.getJSONObject(i);
+            long locationId = addLocation(forecast.locationSetting, forecast.cityName,
+                    forecast.cityLatitude, forecast.cityLongitude);
 
+            for (int i = 0; i < forecast.days.size(); i++) {
+                ContentValues weatherValues = forecast.days.get(i);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
                 // Cheating to convert this to UTC time, which is what we want anyhow
-                dateTime = dayTime.setJulianDay(julianStartDay+i);
-
-                pressure = dayForecast.getDouble(OWM_PRESSURE);
-                humidity = dayForecast.getInt(OWM_HUMIDITY);
-                windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
-                windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
-
-                // Description is in a child array called "weather", which is 1 element long.
-                // That element also contains a weather code.
-                JSONObject weatherObject =
-                        dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
-                description = weatherObject.getString(OWM_DESCRIPTION);
-                weatherId = weatherObject.getInt(OWM_WEATHER_ID);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dayTime.setJulianDay(julianStartDay + i));
+            }
+            cVVector.addAll(forecast.days);
+        }
 
-                // Temperatures are in a child object called "temp".  Try not to name variables
-                // "temp" when working with temperature.  It confuses everybody.
-                JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
-                high = temperatureObject.getDouble(OWM_MAX);
-                low = temperatureObject.getDouble(OWM_MIN);
+        // add to database
+        if ( cVVector.size() > 0 ) {
+            // all locations are written within the single transaction of the bulk insert
+            ContentValues[] cvArray = new ContentValues[cVVector.size()];
+            cVVector.toArray(cvArray);
+            int changedCount = getContext().getContentResolver().bulkInsert(
+                    WeatherContract.WeatherEntry.buildWeatherUpsertUri(), cvArray);
+            Log.d(LOG_TAG, "Stored " + changedCount + " changed rows, "
+                    + (cvArray.length - changedCount) + " unchanged");
+
+            // delete old data so we don't build up an endless history
+            getContext().getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
+                    new String[] {Long.toString(dayTime.setJulianDay(julianStartDay-1))});
+
+            // the writes above cleared the snapshot cache, hand the stored days to the readers
+            // that follow the sync without making them query them again
+            List<ForecastSnapshot> snapshots = new ArrayList<>(cVVector.size());
+            for (ForecastSyncEngine.LocationForecast forecast : forecasts) {
+                if (forecast.status != LOCATION_STATUS_OK || forecast.unchanged) {
+                    continue;
+                }
+                for (ContentValues weatherValues : forecast.days) {
+                    snapshots.add(ForecastSnapshot.fromValues(forecast.locationSetting, weatherValues));
+                }
+            }
+            ForecastSnapshotCache.getInstance().putAll(snapshots);
+        }
+        Log.d(LOG_TAG, "Sync Complete. " + cVVector.size() + " Inserted");
+        Log.d(LOG_TAG, "Downloaded " + compressedBytes + " bytes (" + uncompressedBytes
+                + " uncompressed), decoded in " + decodeMillis + " ms");
+        if (QueryLatencyStats.getInstance().isEnabled()) {
+            Log.d(LOG_TAG, "Query latency " + QueryLatencyStats.getInstance());
+        }
+        Log.d(LOG_TAG, "Snapshot cache " + ForecastSnapshotCache.getInstance());
 
-                ContentValues weatherValues = new ContentValues();
+        // only now that the data is stored it's safe to skip it the next time
+        for (ForecastSyncEngine.LocationForecast forecast : forecasts) {
+            mSyncEngine.commitValidators(forecast);
+        }
 
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTime);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, windDirection);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, description);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
-
-                cVVector.add(weatherValues);
+        if (preferredForecast == null) {
+            // the sync got interrupted before the preferred location has been fetched
+            return;
+        }
+        if (preferredForecast.status == LOCATION_STATUS_OK && !preferredForecast.unchanged
+                && preferredForecast.days.size() > 0) {
+            // everybody gets the stored days, nobody has to query them again
+            try {
+                mPostSyncDispatcher.dispatch(createPayload(preferredForecast));
+            } catch (InterruptedException e) {
+                Log.w(LOG_TAG, "Sync interrupted", e);
+                Thread.currentThread().interrupt();
             }
+        }
+        setLocationStatus(getContext(), preferredForecast.status);
+    }
 
-            int inserted = 0;
-            // add to database
-            if ( cVVector.size() > 0 ) {
-                ContentValues[] cvArray = new ContentValues[cVVector.size()];
-                cVVector.toArray(cvArray);
-                getContext().getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, cvArray);
-
-                // delete old data so we don't build up an endless history
-                getContext().getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
-                        WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
-                        new String[] {Long.toString(dayTime.setJulianDay(julianStartDay-1))});
-
-                updateWidgets();
-                updateMuzei();
-                notifyWeather();
-                updateWear();
-            }
-            Log.d(LOG_TAG, "Sync Complete. " + cVVector.size() + " Inserted");
-            setLocationStatus(getContext(), LOCATION_STATUS_OK);
+    /**
+     * Stops the threads of the sync adapter, once the system is done with it.
+     */
+    void release() {
+        mPostSyncDispatcher.release();
+    }
 
-        } catch (JSONException e) {
-            Log.e(LOG_TAG, e.getMessage(), e);
-            e.printStackTrace();
-            setLocationStatus(getContext(), LOCATION_STATUS_SERVER_INVALID);
+    private static PostSyncPayload createPayload(ForecastSyncEngine.LocationForecast forecast) {
+        long now = System.currentTimeMillis();
+        long today = WeatherContract.normalizeDate(now);
+        ForecastSnapshot todaySnapshot = null;
+        List<ForecastSnapshot> snapshots = new ArrayList<>(forecast.days.size());
+        for (ContentValues weatherValues : forecast.days) {
+            ForecastSnapshot snapshot =
+                    ForecastSnapshot.fromValues(forecast.locationSetting, weatherValues);
+            if (snapshot.date == today) {
+                todaySnapshot = snapshot;
+            }
+            snapshots.add(snapshot);
         }
+        return new PostSyncPayload(forecast.locationSetting, todaySnapshot, snapshots, now);
     }
 
     private void updateWidgets() {
@@ -369,11 +322,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         context.sendBroadcast(dataUpdatedIntent);
     }
 
-    private void updateWear() {
-
-        mWearUpdateHelper.doUpdate();
-    }
-
     private void updateMuzei() {
         // Muzei is only compatible with Jelly Bean MR1+ devices, so there's no need to update the
         // Muzei background on lower API level devices
@@ -384,33 +332,24 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         }
     }
 
-    private void notifyWeather() {
+    private void notifyWeather(PostSyncPayload payload) {
         Context context = getContext();
         //checking the last update and notify if it' the first of the day
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        String displayNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
-        boolean displayNotifications = prefs.getBoolean(displayNotificationsKey,
-                Boolean.parseBoolean(context.getString(R.string.pref_enable_notifications_default)));
-
-        if ( displayNotifications ) {
+        if ( SettingsSnapshot.get(context).notificationsEnabled ) {
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
 
             String lastNotificationKey = context.getString(R.string.pref_last_notification);
             long lastSync = prefs.getLong(lastNotificationKey, 0);
 
             if (System.currentTimeMillis() - lastSync >= DAY_IN_MILLIS) {
                 // Last sync was more than 1 day ago, let's send a notification with the weather.
-                String locationQuery = Utility.getPreferredLocation(context);
-
-                Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
-
-                // we'll query our contentProvider, as always
-                Cursor cursor = context.getContentResolver().query(weatherUri, NOTIFY_WEATHER_PROJECTION, null, null, null);
+                ForecastSnapshot today = payload.today;
 
-                if (cursor.moveToFirst()) {
-                    int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-                    double high = cursor.getDouble(INDEX_MAX_TEMP);
-                    double low = cursor.getDouble(INDEX_MIN_TEMP);
-                    String desc = cursor.getString(INDEX_SHORT_DESC);
+                if (today != null) {
+                    int weatherId = today.weatherId;
+                    double high = today.maxTemp;
+                    double low = today.minTemp;
+                    String desc = today.shortDesc;
 
                     int iconId = CommonUtils.getIconResourceForWeatherCondition(weatherId);
                     Resources resources = context.getResources();
@@ -486,7 +425,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                     editor.putLong(lastNotificationKey, System.currentTimeMillis());
                     editor.commit();
                 }
-                cursor.close();
             }
         }
     }
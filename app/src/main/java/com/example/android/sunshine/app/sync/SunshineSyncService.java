@@ -23,4 +23,16 @@ public class SunshineSyncService extends Service {
     public IBinder onBind(Intent intent) {
         return sSunshineSyncAdapter.getSyncAdapterBinder();
     }
+
+    @Override
+    public void onDestroy() {
+        // the system only lets go of the service once no sync runs anymore
+        synchronized (sSyncAdapterLock) {
+            if (sSunshineSyncAdapter != null) {
+                sSunshineSyncAdapter.release();
+                sSunshineSyncAdapter = null;
+            }
+        }
+        super.onDestroy();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,347 @@
+package com.example.android.sunshine.app.wear;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Base64;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import com.example.android.sunshine.common.Protocol;
+import com.example.android.sunshine.common.WeatherDataTelegram;
+import com.example.android.sunshine.common.WeatherTelegramCodec;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.DataItemBuffer;
+import com.google.android.gms.wearable.DataMap;
+import com.google.android.gms.wearable.DataMapItem;
+import com.google.android.gms.wearable.PutDataMapRequest;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the connection to the wearable and delivers telegrams over it.
+ *
+ * The client is only connected while there is something to send. A telegram sent while
+ * disconnected is kept until the connection is there, and replaced by a newer one. A lost or
+ * failed connection is retried with a growing delay as long as a telegram is waiting. Once
+ * nothing happened for {@link #IDLE_MILLIS} the client is disconnected again.
+ *
+ * A telegram is only sent if it differs from the last delivered one, which is kept across
+ * restarts of the process, and from what the data item on the wearable side holds already.
+ *
+ * Everything runs on a thread of its own, including the callbacks of the client, so no state
+ * is shared with the callers.
+ *
+ * There is one manager per process, see {@link #getInstance(Context)}. It lives as long as the
+ * process: a telegram that is still waiting for the connection outlives the sync that sent it.
+ * Its thread only sleeps in between, and the client is disconnected once it is idle.
+ */
+public class WearConnectionManager implements GoogleApiClient.ConnectionCallbacks,
+        GoogleApiClient.OnConnectionFailedListener {
+
+    private static final String LOG_TAG = WearConnectionManager.class.getSimpleName();
+
+    static final long IDLE_MILLIS = 60 * 1000;
+    static final long MIN_RETRY_MILLIS = 1000;
+    static final long MAX_RETRY_MILLIS = 5 * 60 * 1000;
+
+    // The last delivered telegram, so a new process doesn't send it again
+    private static final String PREF_NAME = "wearconnection";
+    private static final String KEY_TELEGRAM = "WEATHER_TELEGRAM";
+
+    // The weather data item of every node
+    private static final Uri WEATHER_DATA_URI = new Uri.Builder()
+            .scheme(PutDataRequest.WEAR_URI_SCHEME)
+            .path(Protocol.PATH_WEATHER_DATA)
+            .build();
+
+    private static WearConnectionManager sInstance;
+
+    private final Handler mHandler;
+    private final GoogleApiClient mGoogleApiClient;
+    private final SharedPreferences mPrefs;
+
+    private final AtomicInteger mSentCount = new AtomicInteger();
+    private final AtomicInteger mSuppressedCount = new AtomicInteger();
+    private final AtomicInteger mDroppedCount = new AtomicInteger();
+
+    // Only touched on the thread of mHandler
+    private WeatherDataTelegram mPendingTelegram;
+    // Waiting for the data item check or the put
+    private WeatherDataTelegram mInFlightTelegram;
+    // Counts the flushes, the callbacks of all but the last one are ignored
+    private int mFlight;
+    private long mRetryMillis = MIN_RETRY_MILLIS;
+    // Encoded, telegrams are compared as they are sent
+    private byte[] mLastDeliveredTelegram;
+
+    private final Runnable mRetryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mGoogleApiClient.isConnected()) {
+                flush();
+            } else {
+                connect();
+            }
+        }
+    };
+
+    private final Runnable mIdleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mPendingTelegram == null && mInFlightTelegram == null
+                    && mGoogleApiClient.isConnected()) {
+                Log.d(LOG_TAG, "Idle, disconnecting");
+                mGoogleApiClient.disconnect();
+            }
+        }
+    };
+
+    public static synchronized WearConnectionManager getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WearConnectionManager(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private WearConnectionManager(Context context) {
+        mPrefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        String lastDelivered = mPrefs.getString(KEY_TELEGRAM, null);
+        if (lastDelivered != null) {
+            mLastDeliveredTelegram = Base64.decode(lastDelivered, Base64.NO_WRAP);
+        }
+
+        HandlerThread thread = new HandlerThread(LOG_TAG);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+
+        mGoogleApiClient = new GoogleApiClient.Builder(context)
+                .addApi(Wearable.API)
+                .addConnectionCallbacks(this)
+                .addOnConnectionFailedListener(this)
+                .setHandler(mHandler)
+                .build();
+    }
+
+    /**
+     * Delivers the telegram as soon as there is a connection. A telegram that is still waiting
+     * is replaced and counted as dropped.
+     */
+    public void send(final WeatherDataTelegram telegram) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (telegram.equals(mPendingTelegram)) {
+                    return;
+                }
+                if (mPendingTelegram == null && mInFlightTelegram == null
+                        && Arrays.equals(WeatherTelegramCodec.encode(telegram),
+                                mLastDeliveredTelegram)) {
+                    // just to be sure not to use more power than needed
+                    mSuppressedCount.incrementAndGet();
+                    Log.i(LOG_TAG, "no wear update needed");
+                    return;
+                }
+                if (mPendingTelegram != null) {
+                    mDroppedCount.incrementAndGet();
+                }
+                mPendingTelegram = telegram;
+                // new data is worth a try right away, even while waiting for a retry
+                mHandler.removeCallbacks(mRetryRunnable);
+                if (mGoogleApiClient.isConnected()) {
+                    flush();
+                } else {
+                    connect();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return how many telegrams were put into a data item
+     */
+    public int getSentCount() {
+        return mSentCount.get();
+    }
+
+    /**
+     * @return how many telegrams weren't sent because the wearable had them already
+     */
+    public int getSuppressedCount() {
+        return mSuppressedCount.get();
+    }
+
+    public int getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    @Override
+    public void onConnected(Bundle bundle) {
+        Log.d(LOG_TAG, "Connected");
+        mRetryMillis = MIN_RETRY_MILLIS;
+        mHandler.removeCallbacks(mRetryRunnable);
+        flush();
+    }
+
+    @Override
+    public void onConnectionSuspended(int cause) {
+        Log.d(LOG_TAG, "Connection suspended (" + cause + ")");
+        // the result of the put may never come, send it again with the next connection
+        requeueInFlight();
+        scheduleRetry();
+    }
+
+    @Override
+    public void onConnectionFailed(ConnectionResult connectionResult) {
+        Log.d(LOG_TAG, "Connection failed: " + connectionResult);
+        requeueInFlight();
+        if (connectionResult.getErrorCode() == ConnectionResult.API_UNAVAILABLE) {
+            // there is no wearable, retrying won't help until the next update
+            if (mPendingTelegram != null) {
+                mPendingTelegram = null;
+                mDroppedCount.incrementAndGet();
+            }
+            return;
+        }
+        scheduleRetry();
+    }
+
+    private void connect() {
+        if (!mGoogleApiClient.isConnected() && !mGoogleApiClient.isConnecting()) {
+            mGoogleApiClient.connect();
+        }
+    }
+
+    private void scheduleRetry() {
+        if (mPendingTelegram == null) {
+            // nothing to deliver, the next send connects again
+            return;
+        }
+        Log.d(LOG_TAG, "Retrying in " + mRetryMillis + " ms");
+        mHandler.removeCallbacks(mRetryRunnable);
+        mHandler.postDelayed(mRetryRunnable, mRetryMillis);
+        mRetryMillis = Math.min(mRetryMillis * 2, MAX_RETRY_MILLIS);
+    }
+
+    /**
+     * Takes the telegram in flight back into the queue, unless a newer one waits already. The
+     * callbacks of its flight are ignored from now on.
+     */
+    private void requeueInFlight() {
+        if (mInFlightTelegram == null) {
+            return;
+        }
+        if (mPendingTelegram == null) {
+            mPendingTelegram = mInFlightTelegram;
+        } else {
+            mDroppedCount.incrementAndGet();
+        }
+        mInFlightTelegram = null;
+        mFlight++;
+    }
+
+    private void flush() {
+        final WeatherDataTelegram telegram = mPendingTelegram;
+        if (telegram != null) {
+            if (mInFlightTelegram != null) {
+                // a newer telegram is on its way, the older one is given up
+                mDroppedCount.incrementAndGet();
+            }
+            mPendingTelegram = null;
+            mInFlightTelegram = telegram;
+            final int flight = ++mFlight;
+            // the data item survives restarts of both sides, don't touch it if it's up to date
+            Wearable.DataApi.getDataItems(mGoogleApiClient, WEATHER_DATA_URI)
+                    .setResultCallback(new ResultCallback<DataItemBuffer>() {
+                        @Override
+                        public void onResult(DataItemBuffer dataItems) {
+                            onDataItemsLoaded(telegram, flight, dataItems);
+                        }
+                    });
+        }
+        mHandler.removeCallbacks(mIdleRunnable);
+        mHandler.postDelayed(mIdleRunnable, IDLE_MILLIS);
+    }
+
+    private void onDataItemsLoaded(final WeatherDataTelegram telegram, final int flight,
+                                   DataItemBuffer dataItems) {
+        boolean upToDate = false;
+        try {
+            if (dataItems.getStatus().isSuccess()) {
+                for (DataItem dataItem : dataItems) {
+                    DataMap dataMap = DataMapItem.fromDataItem(dataItem).getDataMap();
+                    if (Protocol.isTelegramInData(telegram, dataMap)) {
+                        upToDate = true;
+                    }
+                }
+            }
+        } finally {
+            dataItems.release();
+        }
+
+        if (flight != mFlight) {
+            // a newer telegram is on its way, or this one went back into the queue
+            return;
+        }
+        if (upToDate) {
+            mInFlightTelegram = null;
+            mSuppressedCount.incrementAndGet();
+            onDelivered(telegram);
+        } else {
+            Log.i(LOG_TAG, "Sending update to wear");
+            PutDataMapRequest mapRequest = PutDataMapRequest.create(Protocol.PATH_WEATHER_DATA);
+            // today in the keys every watch reads, and the days in the binary telegram next to them
+            Protocol.addTelegramToData(telegram, mapRequest.getDataMap(),
+                    Protocol.ENCODING_BINARY);
+            Wearable.DataApi.putDataItem(mGoogleApiClient, mapRequest.asPutDataRequest())
+                    .setResultCallback(new ResultCallback<DataApi.DataItemResult>() {
+                        @Override
+                        public void onResult(DataApi.DataItemResult result) {
+                            onDataItemResult(telegram, flight, result);
+                        }
+                    });
+        }
+    }
+
+    private void onDataItemResult(WeatherDataTelegram telegram, int flight,
+                                  DataApi.DataItemResult result) {
+        if (flight != mFlight) {
+            // a newer telegram is on its way, or this one went back into the queue
+            return;
+        }
+        mInFlightTelegram = null;
+        if (result.getStatus().isSuccess()) {
+            mSentCount.incrementAndGet();
+            onDelivered(telegram);
+        } else if (mPendingTelegram == null) {
+            // nothing newer came in meanwhile, try again with the next connection
+            Log.w(LOG_TAG, "Sending failed: " + result.getStatus());
+            mPendingTelegram = telegram;
+            scheduleRetry();
+        } else {
+            mDroppedCount.incrementAndGet();
+        }
+    }
+
+    private void onDelivered(WeatherDataTelegram telegram) {
+        mLastDeliveredTelegram = WeatherTelegramCodec.encode(telegram);
+        mRetryMillis = MIN_RETRY_MILLIS;
+        // clear drops the separate fields earlier versions stored
+        mPrefs.edit()
+                .clear()
+                .putString(KEY_TELEGRAM,
+                        Base64.encodeToString(mLastDeliveredTelegram, Base64.NO_WRAP))
+                .apply();
+        Log.d(LOG_TAG, "Sent " + mSentCount + ", suppressed " + mSuppressedCount
+                + ", dropped " + mDroppedCount);
+    }
+}
@@ -1,138 +1,65 @@
 package com.example.android.sunshine.app.wear;
 
 import android.content.Context;
-import android.database.Cursor;
-import android.net.Uri;
-import android.os.Bundle;
 import android.util.Log;
 
-import com.example.android.sunshine.app.Utility;
-import com.example.android.sunshine.app.data.WeatherContract;
-import com.example.android.sunshine.common.Protocol;
+import com.example.android.sunshine.app.data.ForecastSnapshot;
+import com.example.android.sunshine.app.sync.PostSyncPayload;
+import com.example.android.sunshine.common.ForecastDay;
 import com.example.android.sunshine.common.WeatherDataTelegram;
 import com.example.android.sunshine.common.WeatherUnit;
-import com.google.android.gms.common.ConnectionResult;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.wearable.PutDataMapRequest;
-import com.google.android.gms.wearable.PutDataRequest;
-import com.google.android.gms.wearable.Wearable;
 
-import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 
-public class WearUpdateHelper implements GoogleApiClient.ConnectionCallbacks, GoogleApiClient.OnConnectionFailedListener {
+public class WearUpdateHelper {
 
     private static final String LOG_TAG = WearUpdateHelper.class.getSimpleName();
 
-    private static final String[] WEAR_WEATHER_PROJECTION = new String[] {
-            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
-    };
+    // The days after today shown on the watch face
+    static final int FORECAST_DAYS = 4;
 
-    private static final int INDEX_WEATHER_ID = 0;
-    private static final int INDEX_MAX_TEMP = 1;
-    private static final int INDEX_MIN_TEMP = 2;
-
-    private GoogleApiClient mGoogleApiClient;
-    private WeatherDataTelegram mLastSentTelegram;
-
-    private WeakReference<Context> mContextRef;
+    private final WearConnectionManager mConnectionManager;
 
     public WearUpdateHelper(Context context) {
-        mContextRef = new WeakReference<>(context);
-
-        mGoogleApiClient = new GoogleApiClient.Builder(context)
-                .addApi(Wearable.API)
-                .addConnectionCallbacks(this)
-                .addOnConnectionFailedListener(this)
-                .build();
-
-        if (!mGoogleApiClient.isConnected()) {
-            mGoogleApiClient.connect();
-        }
+        mConnectionManager = WearConnectionManager.getInstance(context);
     }
 
-    @Override
-    protected void finalize() throws Throwable {
-        super.finalize();
-        if(mGoogleApiClient != null
-                && mGoogleApiClient.isConnected()) {
-            mGoogleApiClient.disconnect();
-        }
-    }
-
-    public void doUpdate() {
+    /**
+     * Sends the weather of today and the days after it to the wearable, unless it was the last
+     * thing sent.
+     *
+     * @param payload what the sync stored, the days are taken from it without querying them
+     */
+    public void doUpdate(PostSyncPayload payload) {
         Log.i(LOG_TAG, "Updating wear");
 
-        if(mGoogleApiClient == null
-                || !mGoogleApiClient.isConnected()) {
-            Log.i(LOG_TAG, "No Google API connection => returning");
-            return;
-        }
-
-        Context context = mContextRef.get();
-        if(context == null) {
-            return;
-        }
-
-        String locationQuery = Utility.getPreferredLocation(context);
-
-        Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
-
-        // we'll query our contentProvider, as always
-        Cursor cursor = context.getContentResolver().query(weatherUri, WEAR_WEATHER_PROJECTION, null, null, null);
-
-        Log.i(LOG_TAG, "Querying weather data for wear");
-
-        if (cursor.moveToFirst()) {
+        ForecastSnapshot today = payload.today;
+        if (today != null) {
             Log.i(LOG_TAG, "Got data");
-            int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-            double high = cursor.getDouble(INDEX_MAX_TEMP);
-            double low = cursor.getDouble(INDEX_MIN_TEMP);
-
-            boolean sendUpdate = true;
+            int weatherId = today.weatherId;
+            double high = today.maxTemp;
+            double low = today.minTemp;
+
+            // the days are ordered by date, so the ones after today follow it
+            List<ForecastDay> forecast = new ArrayList<>(FORECAST_DAYS);
+            for (ForecastSnapshot day : payload.forecast) {
+                if (day.date > today.date && forecast.size() < FORECAST_DAYS) {
+                    forecast.add(new ForecastDay(day.weatherId, day.maxTemp, day.minTemp,
+                            day.humidity, day.windSpeed));
+                }
+            }
 
             WeatherDataTelegram telegram = new WeatherDataTelegram(
                     WeatherUnit.Celcius,
                     weatherId,
                     high,
-                    low
+                    low,
+                    forecast.toArray(new ForecastDay[forecast.size()])
             );
 
-            //just to be sure not to use more power than needed
-            if (telegram.equals(mLastSentTelegram)) {
-                sendUpdate = false;
-            }
-
-            if(sendUpdate) {
-                Log.i(LOG_TAG, "sending update to wear");
-                PutDataMapRequest mapRequest = PutDataMapRequest.create(Protocol.PATH_WEATHER_DATA);
-                Protocol.addTelegramToData(telegram, mapRequest.getDataMap());
-                PutDataRequest request = mapRequest.asPutDataRequest();
-
-                Wearable.DataApi.putDataItem(mGoogleApiClient, request);
-
-                mLastSentTelegram = telegram;
-            } else {
-                Log.i(LOG_TAG, "no wear update needed");
-            }
-
+            // queued until the connection is there, skipped if the wearable has it already
+            mConnectionManager.send(telegram);
         }
-        cursor.close();
-    }
-
-    @Override
-    public void onConnected(Bundle bundle) {
-
-    }
-
-    @Override
-    public void onConnectionSuspended(int i) {
-
-    }
-
-    @Override
-    public void onConnectionFailed(ConnectionResult connectionResult) {
-
     }
 }
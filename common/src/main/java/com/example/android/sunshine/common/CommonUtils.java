@@ -2,9 +2,34 @@ package com.example.android.sunshine.common;
 
 public final class CommonUtils {
 
+    // The 8 points of the compass, each one covers 45 degrees centered on its direction
+    private static final String[] COMPASS_POINTS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+    private static final String COMPASS_UNKNOWN = "Unknown";
+
     private CommonUtils() {
     }
 
+    /**
+     * Helper method to provide the compass direction the wind comes from.
+     * @param degrees wind direction from OpenWeatherMap API response
+     * @return the abbreviation of the point of the compass, e.g. "NW". "Unknown" if degrees is
+     * not a number.
+     */
+    public static String getCompassDirection(float degrees) {
+        if (Float.isNaN(degrees)) {
+            return COMPASS_UNKNOWN;
+        }
+        // Everything outside of 22.5 to 337.5, including nonsense like negative degrees, is north
+        if (degrees < 22.5 || degrees >= 337.5) {
+            return COMPASS_POINTS[0];
+        }
+        int point = 1;
+        while (degrees >= 22.5 + 45 * point) {
+            point++;
+        }
+        return COMPASS_POINTS[point];
+    }
+
     /**
      * Helper method to provide the icon resource id according to the weather condition id returned
      * by the OpenWeatherMap call.
@@ -12,32 +37,7 @@ public final class CommonUtils {
      * @return resource id for the corresponding icon. -1 if no relation is found.
      */
     public static int getIconResourceForWeatherCondition(int weatherId) {
-        // Based on weather code data found at:
-        // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-        if (weatherId >= 200 && weatherId <= 232) {
-            return R.drawable.ic_storm;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return R.drawable.ic_light_rain;
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return R.drawable.ic_rain;
-        } else if (weatherId == 511) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return R.drawable.ic_rain;
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return R.drawable.ic_fog;
-        } else if (weatherId == 761 || weatherId == 781) {
-            return R.drawable.ic_storm;
-        } else if (weatherId == 800) {
-            return R.drawable.ic_clear;
-        } else if (weatherId == 801) {
-            return R.drawable.ic_light_clouds;
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return R.drawable.ic_cloudy;
-        }
-        return -1;
+        return WeatherConditionTable.getIcon(weatherId);
     }
 
     /**
@@ -47,31 +47,36 @@ public final class CommonUtils {
      * @return resource id for the corresponding icon. -1 if no relation is found.
      */
     public static int getArtResourceForWeatherCondition(int weatherId) {
-        // Based on weather code data found at:
-        // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-        if (weatherId >= 200 && weatherId <= 232) {
-            return R.drawable.art_storm;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return R.drawable.art_light_rain;
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return R.drawable.art_rain;
-        } else if (weatherId == 511) {
-            return R.drawable.art_snow;
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return R.drawable.art_rain;
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return R.drawable.art_snow;
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return R.drawable.art_fog;
-        } else if (weatherId == 761 || weatherId == 781) {
-            return R.drawable.art_storm;
-        } else if (weatherId == 800) {
-            return R.drawable.art_clear;
-        } else if (weatherId == 801) {
-            return R.drawable.art_light_clouds;
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return R.drawable.art_clouds;
-        }
-        return -1;
+        return WeatherConditionTable.getArt(weatherId);
+    }
+
+    /**
+     * Helper method to provide the name of the art in the art packs according to the weather
+     * condition id returned by the OpenWeatherMap call.
+     * @param weatherId from OpenWeatherMap API response
+     * @return name to put into the url format of an art pack. null if no relation is found.
+     */
+    public static String getArtKeyForWeatherCondition(int weatherId) {
+        return WeatherConditionTable.getArtKey(weatherId);
+    }
+
+    /**
+     * Helper method to provide the string resource id of the name of the weather condition id
+     * returned by the OpenWeatherMap call.
+     * @param weatherId from OpenWeatherMap API response
+     * @return resource id for the corresponding string. 0 if no relation is found.
+     */
+    public static int getDescriptionResourceForWeatherCondition(int weatherId) {
+        return WeatherConditionTable.getDescription(weatherId);
+    }
+
+    /**
+     * Helper method to provide the url of a photo according to the weather condition id returned
+     * by the OpenWeatherMap call.
+     * @param weatherId from OpenWeatherMap API response
+     * @return url for the corresponding photo. null if no relation is found.
+     */
+    public static String getImageUrlForWeatherCondition(int weatherId) {
+        return WeatherConditionTable.getImageUrl(weatherId);
     }
 }
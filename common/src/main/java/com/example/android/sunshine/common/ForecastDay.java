@@ -0,0 +1,73 @@
+package com.example.android.sunshine.common;
+
+/**
+ * The weather of one of the days after today, as sent to the wearable.
+ */
+public class ForecastDay {
+
+    // Humidity or wind speed that wasn't sent
+    public static final double UNKNOWN = Double.NaN;
+
+    private int mWeatherConditionId;
+    private double mTemperatureMax;
+    private double mTemperatureMin;
+    private double mHumidity;
+    private double mWindSpeed;
+
+    /**
+     * @param humidity in percent, or {@link #UNKNOWN}
+     * @param windSpeed in km/h, or {@link #UNKNOWN}
+     */
+    public ForecastDay(int weatherConditionId, double temperatureMax, double temperatureMin,
+                       double humidity, double windSpeed) {
+        this.mWeatherConditionId = weatherConditionId;
+        this.mTemperatureMax = temperatureMax;
+        this.mTemperatureMin = temperatureMin;
+        this.mHumidity = humidity;
+        this.mWindSpeed = windSpeed;
+    }
+
+    public int getWeatherConditionId() {
+        return mWeatherConditionId;
+    }
+
+    public double getTemperatureMax() {
+        return mTemperatureMax;
+    }
+
+    public double getTemperatureMin() {
+        return mTemperatureMin;
+    }
+
+    public double getHumidity() {
+        return mHumidity;
+    }
+
+    public double getWindSpeed() {
+        return mWindSpeed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof ForecastDay)) {
+            return false;
+        }
+        ForecastDay castedObj = (ForecastDay)o;
+        return mWeatherConditionId == castedObj.mWeatherConditionId
+                && mTemperatureMax == castedObj.mTemperatureMax
+                && mTemperatureMin == castedObj.mTemperatureMin
+                // unknown values are equal to each other
+                && Double.compare(mHumidity, castedObj.mHumidity) == 0
+                && Double.compare(mWindSpeed, castedObj.mWindSpeed) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mWeatherConditionId;
+        result = 31 * result + WeatherDataTelegram.hashCode(mTemperatureMax);
+        result = 31 * result + WeatherDataTelegram.hashCode(mTemperatureMin);
+        result = 31 * result + WeatherDataTelegram.hashCode(mHumidity);
+        result = 31 * result + WeatherDataTelegram.hashCode(mWindSpeed);
+        return result;
+    }
+}
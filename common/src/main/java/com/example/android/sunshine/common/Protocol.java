@@ -2,7 +2,7 @@ package com.example.android.sunshine.common;
 
 import com.google.android.gms.wearable.DataMap;
 
-import java.util.Calendar;
+import java.util.Arrays;
 
 public final class Protocol {
 
@@ -15,8 +15,26 @@ public final class Protocol {
     private static String KEY_TEMP_MIN = "WEATHER_TEMP_MIN";
     private static String KEY_TEMP_MAX = "WEATHER_TEMP_MAX";
     private static String KEY_TEMP_UNIT = "WEATHER_TEMP_UNIT";
+    private static String KEY_TELEGRAM = "WEATHER_TELEGRAM";
 
+    // One key per field of the telegram
+    public static final int ENCODING_DATA_MAP = 0;
+    // The keys of ENCODING_DATA_MAP, and next to them the telegram encoded by
+    // WeatherTelegramCodec under a single key. Watches that don't know that key read the others.
+    public static final int ENCODING_BINARY = 1;
+
+    /**
+     * Reads a telegram in either encoding.
+     */
     public static WeatherDataTelegram telegramFromData(DataMap dm) {
+        byte[] bytes = dm.getByteArray(KEY_TELEGRAM);
+        if (bytes != null) {
+            WeatherDataTelegram telegram = WeatherTelegramCodec.decode(bytes);
+            if (telegram != null) {
+                return telegram;
+            }
+        }
+
         int conditionId = dm.getInt(KEY_CONDITION);
         double tempMin = dm.getDouble(KEY_TEMP_MIN);
         double tempMax = dm.getDouble(KEY_TEMP_MAX);
@@ -31,9 +49,28 @@ public final class Protocol {
     }
 
     public static void addTelegramToData(WeatherDataTelegram telegram, DataMap dm) {
+        addTelegramToData(telegram, dm, ENCODING_DATA_MAP);
+    }
+
+    public static void addTelegramToData(WeatherDataTelegram telegram, DataMap dm, int encoding) {
+        // always written, no watch has told which encodings it knows
         dm.putInt(KEY_CONDITION, telegram.getWeatherConditionId());
         dm.putDouble(KEY_TEMP_MIN, telegram.getTemperatureMin());
         dm.putDouble(KEY_TEMP_MAX, telegram.getTemperatureMax());
         dm.putInt(KEY_TEMP_UNIT, telegram.getWeatherUnit().getValue());
+        if (encoding == ENCODING_BINARY) {
+            dm.putByteArray(KEY_TELEGRAM, WeatherTelegramCodec.encode(telegram));
+        }
+    }
+
+    /**
+     * @return true if the data holds the telegram, as precisely as its encoding keeps it
+     */
+    public static boolean isTelegramInData(WeatherDataTelegram telegram, DataMap dm) {
+        byte[] bytes = dm.getByteArray(KEY_TELEGRAM);
+        if (bytes != null) {
+            return Arrays.equals(WeatherTelegramCodec.encode(telegram), bytes);
+        }
+        return telegram.equals(telegramFromData(dm));
     }
 }
@@ -0,0 +1,220 @@
+package com.example.android.sunshine.common;
+
+/**
+ * Everything known about the weather condition codes of OpenWeatherMap, precomputed into arrays
+ * indexed by the code, so every lookup is a bounds check and an array access.
+ *
+ * Based on weather code data found at:
+ * http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
+ */
+final class WeatherConditionTable {
+
+    // All codes are below 1000
+    static final int SIZE = 1000;
+
+    // The groups of conditions that share icon, art and image
+    private static final int GROUP_NONE = 0;
+    private static final int GROUP_STORM = 1;
+    private static final int GROUP_LIGHT_RAIN = 2;
+    private static final int GROUP_RAIN = 3;
+    private static final int GROUP_SNOW = 4;
+    private static final int GROUP_FOG = 5;
+    // Tornado: the storm graphics, but the image of a dust storm
+    private static final int GROUP_TORNADO = 6;
+    private static final int GROUP_CLEAR = 7;
+    private static final int GROUP_LIGHT_CLOUDS = 8;
+    private static final int GROUP_CLOUDS = 9;
+
+    // by group
+    private static final int[] GROUP_ICONS = {
+            -1,
+            R.drawable.ic_storm,
+            R.drawable.ic_light_rain,
+            R.drawable.ic_rain,
+            R.drawable.ic_snow,
+            R.drawable.ic_fog,
+            R.drawable.ic_storm,
+            R.drawable.ic_clear,
+            R.drawable.ic_light_clouds,
+            R.drawable.ic_cloudy
+    };
+
+    private static final int[] GROUP_ART = {
+            -1,
+            R.drawable.art_storm,
+            R.drawable.art_light_rain,
+            R.drawable.art_rain,
+            R.drawable.art_snow,
+            R.drawable.art_fog,
+            R.drawable.art_storm,
+            R.drawable.art_clear,
+            R.drawable.art_light_clouds,
+            R.drawable.art_clouds
+    };
+
+    // name of the art in the art packs
+    private static final String[] GROUP_ART_KEYS = {
+            null,
+            "storm",
+            "light_rain",
+            "rain",
+            "snow",
+            "fog",
+            "storm",
+            "clear",
+            "light_clouds",
+            "clouds"
+    };
+
+    private static final String[] GROUP_IMAGE_URLS = {
+            null,
+            "http://upload.wikimedia.org/wikipedia/commons/2/28/Thunderstorm_in_Annemasse,_France.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/a/a0/Rain_on_leaf_504605006.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e6/Westminster_fog_-_London_-_UK.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/d/dc/Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/7/7e/A_few_trees_and_the_sun_(6009964513).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e7/Cloudy_Blue_Sky_(5031259890).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/5/54/Cloudy_hills_in_Elis,_Greece_2.jpg"
+    };
+
+    // by condition code
+    private static final byte[] GROUPS = new byte[SIZE];
+    // string resource with the name of the condition, 0 if there is none
+    private static final int[] DESCRIPTIONS = new int[SIZE];
+
+    static {
+        setGroup(200, 232, GROUP_STORM);
+        setGroup(300, 321, GROUP_LIGHT_RAIN);
+        setGroup(500, 504, GROUP_RAIN);
+        setGroup(511, 511, GROUP_SNOW);
+        setGroup(520, 531, GROUP_RAIN);
+        setGroup(600, 622, GROUP_SNOW);
+        // 761 (dust) is part of the fog range
+        setGroup(701, 761, GROUP_FOG);
+        setGroup(781, 781, GROUP_TORNADO);
+        setGroup(800, 800, GROUP_CLEAR);
+        setGroup(801, 801, GROUP_LIGHT_CLOUDS);
+        setGroup(802, 804, GROUP_CLOUDS);
+
+        setDescription(200, 232, R.string.condition_2xx);
+        setDescription(300, 321, R.string.condition_3xx);
+        setDescription(500, R.string.condition_500);
+        setDescription(501, R.string.condition_501);
+        setDescription(502, R.string.condition_502);
+        setDescription(503, R.string.condition_503);
+        setDescription(504, R.string.condition_504);
+        setDescription(511, R.string.condition_511);
+        setDescription(520, R.string.condition_520);
+        setDescription(531, R.string.condition_531);
+        setDescription(600, R.string.condition_600);
+        setDescription(601, R.string.condition_601);
+        setDescription(602, R.string.condition_602);
+        setDescription(611, R.string.condition_611);
+        setDescription(612, R.string.condition_612);
+        setDescription(615, R.string.condition_615);
+        setDescription(616, R.string.condition_616);
+        setDescription(620, R.string.condition_620);
+        setDescription(621, R.string.condition_621);
+        setDescription(622, R.string.condition_622);
+        setDescription(701, R.string.condition_701);
+        setDescription(711, R.string.condition_711);
+        setDescription(721, R.string.condition_721);
+        setDescription(731, R.string.condition_731);
+        setDescription(741, R.string.condition_741);
+        setDescription(751, R.string.condition_751);
+        setDescription(761, R.string.condition_761);
+        setDescription(762, R.string.condition_762);
+        setDescription(771, R.string.condition_771);
+        setDescription(781, R.string.condition_781);
+        setDescription(800, R.string.condition_800);
+        setDescription(801, R.string.condition_801);
+        setDescription(802, R.string.condition_802);
+        setDescription(803, R.string.condition_803);
+        setDescription(804, R.string.condition_804);
+        setDescription(900, R.string.condition_900);
+        setDescription(901, R.string.condition_901);
+        setDescription(902, R.string.condition_902);
+        setDescription(903, R.string.condition_903);
+        setDescription(904, R.string.condition_904);
+        setDescription(905, R.string.condition_905);
+        setDescription(906, R.string.condition_906);
+        setDescription(951, R.string.condition_951);
+        setDescription(952, R.string.condition_952);
+        setDescription(953, R.string.condition_953);
+        setDescription(954, R.string.condition_954);
+        setDescription(955, R.string.condition_955);
+        setDescription(956, R.string.condition_956);
+        setDescription(957, R.string.condition_957);
+        setDescription(958, R.string.condition_958);
+        setDescription(959, R.string.condition_959);
+        setDescription(960, R.string.condition_960);
+        setDescription(961, R.string.condition_961);
+        setDescription(962, R.string.condition_962);
+    }
+
+    private WeatherConditionTable() {
+    }
+
+    /**
+     * @return resource id of the icon, -1 if there is none
+     */
+    static int getIcon(int weatherId) {
+        return GROUP_ICONS[getGroup(weatherId)];
+    }
+
+    /**
+     * @return resource id of the art, -1 if there is none
+     */
+    static int getArt(int weatherId) {
+        return GROUP_ART[getGroup(weatherId)];
+    }
+
+    /**
+     * @return name of the art in the art packs, null if there is none
+     */
+    static String getArtKey(int weatherId) {
+        return GROUP_ART_KEYS[getGroup(weatherId)];
+    }
+
+    /**
+     * @return url of a photo of the condition, null if there is none
+     */
+    static String getImageUrl(int weatherId) {
+        return GROUP_IMAGE_URLS[getGroup(weatherId)];
+    }
+
+    /**
+     * @return string resource id of the name of the condition, 0 if there is none
+     */
+    static int getDescription(int weatherId) {
+        if (weatherId < 0 || weatherId >= SIZE) {
+            return 0;
+        }
+        return DESCRIPTIONS[weatherId];
+    }
+
+    private static int getGroup(int weatherId) {
+        if (weatherId < 0 || weatherId >= SIZE) {
+            return GROUP_NONE;
+        }
+        return GROUPS[weatherId];
+    }
+
+    private static void setGroup(int first, int last, int group) {
+        for (int weatherId = first; weatherId <= last; weatherId++) {
+            GROUPS[weatherId] = (byte) group;
+        }
+    }
+
+    private static void setDescription(int first, int last, int description) {
+        for (int weatherId = first; weatherId <= last; weatherId++) {
+            DESCRIPTIONS[weatherId] = description;
+        }
+    }
+
+    private static void setDescription(int weatherId, int description) {
+        DESCRIPTIONS[weatherId] = description;
+    }
+}
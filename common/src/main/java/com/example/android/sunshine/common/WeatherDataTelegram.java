@@ -1,16 +1,30 @@
 package com.example.android.sunshine.common;
 
+import java.util.Arrays;
+
 public class WeatherDataTelegram {
+    private static final ForecastDay[] NO_DAYS = new ForecastDay[0];
+
     private WeatherUnit mWeatherUnit;
     private int mWeatherConditionId;
     private double mTemperatureMax;
     private double mTemperatureMin;
+    private ForecastDay[] mForecast;
 
     public WeatherDataTelegram(WeatherUnit weatherUnit, int weatherConditionId, double temperatureMax, double temperatureMin) {
+        this(weatherUnit, weatherConditionId, temperatureMax, temperatureMin, NO_DAYS);
+    }
+
+    /**
+     * @param forecast the days after today, in order
+     */
+    public WeatherDataTelegram(WeatherUnit weatherUnit, int weatherConditionId, double temperatureMax, double temperatureMin,
+                               ForecastDay[] forecast) {
         this.mWeatherUnit = weatherUnit;
         this.mWeatherConditionId = weatherConditionId;
         this.mTemperatureMax = temperatureMax;
         this.mTemperatureMin = temperatureMin;
+        this.mForecast = forecast.length == 0 ? NO_DAYS : forecast.clone();
     }
 
     public WeatherUnit getWeatherUnit() {
@@ -29,6 +43,20 @@ public class WeatherDataTelegram {
         return mTemperatureMin;
     }
 
+    /**
+     * @return the number of days after today the telegram carries
+     */
+    public int getForecastDayCount() {
+        return mForecast.length;
+    }
+
+    /**
+     * @param index 0 for tomorrow
+     */
+    public ForecastDay getForecastDay(int index) {
+        return mForecast[index];
+    }
+
     @Override
     public boolean equals(Object o) {
         if(o == null) {
@@ -41,17 +69,24 @@ public class WeatherDataTelegram {
         return mWeatherUnit.getValue() == castedObj.mWeatherUnit.getValue()
                 && mWeatherConditionId == castedObj.mWeatherConditionId
                 && mTemperatureMax == castedObj.mTemperatureMax
-                && mTemperatureMin == castedObj.mTemperatureMin;
+                && mTemperatureMin == castedObj.mTemperatureMin
+                && Arrays.equals(mForecast, castedObj.mForecast);
     }
 
     @Override
     public int hashCode() {
-        int result = 0;
-        result |= mWeatherUnit.getValue();
-        result |= mWeatherConditionId;
-        result |= Double.valueOf(mTemperatureMax).hashCode();
-        result |= Double.valueOf(mTemperatureMin).hashCode();
+        int result = mWeatherUnit.getValue();
+        result = 31 * result + mWeatherConditionId;
+        result = 31 * result + hashCode(mTemperatureMax);
+        result = 31 * result + hashCode(mTemperatureMin);
+        result = 31 * result + Arrays.hashCode(mForecast);
 
         return result;
     }
+
+    static int hashCode(double value) {
+        // 0.0 and -0.0 are equal, they must have the same hash
+        long bits = value == 0 ? 0 : Double.doubleToLongBits(value);
+        return (int) (bits ^ (bits >>> 32));
+    }
 }
@@ -0,0 +1,204 @@
+package com.example.android.sunshine.common;
+
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A format string like the ones of the temperature and the wind, compiled once so it can be
+ * applied without allocating anything.
+ *
+ * The format may contain a number formatted with {@code %.0f} (argument 1) and a string
+ * formatted with {@code %s} (argument 2), with or without explicit argument indices, in any order.
+ * The output is the same as {@link String#format(Locale, String, Object...)} produces for it:
+ * the number is rounded half up, written with the digits of the locale and keeps its minus sign
+ * when it rounds to zero ("-0"). Formats with anything else, and numbers too large to be
+ * written exactly with a long, are passed on to {@link String#format(Locale, String, Object...)}.
+ *
+ * Instances are immutable, but the builders passed in are of course not.
+ */
+public final class WeatherFormat {
+
+    private static final int ARGUMENT_NUMBER = 0;
+    private static final int ARGUMENT_TEXT = 1;
+
+    // Above this a double has no fraction anymore, and may not fit into a long
+    private static final double MAX_EXACT = 1L << 52;
+
+    private final String mPattern;
+    private final Locale mLocale;
+    private final char mZeroDigit;
+    // The text between the arguments, there is one more of them than of arguments
+    private final String[] mLiterals;
+    private final int[] mArguments;
+    // false if the pattern can only be handled by String.format
+    private final boolean mCompiled;
+
+    private WeatherFormat(String pattern, Locale locale) {
+        mPattern = pattern;
+        mLocale = locale;
+        mZeroDigit = DecimalFormatSymbols.getInstance(locale).getZeroDigit();
+
+        List<String> literals = new ArrayList<>();
+        List<Integer> arguments = new ArrayList<>();
+        mCompiled = parse(pattern, literals, arguments);
+        mLiterals = literals.toArray(new String[literals.size()]);
+        mArguments = new int[arguments.size()];
+        for (int i = 0; i < mArguments.length; i++) {
+            mArguments[i] = arguments.get(i);
+        }
+    }
+
+    /**
+     * @param pattern a format string for {@link String#format(Locale, String, Object...)}
+     * @param locale locale to write the digits in, usually {@link Locale#getDefault()}
+     */
+    public static WeatherFormat compile(String pattern, Locale locale) {
+        return new WeatherFormat(pattern, locale);
+    }
+
+    public String getPattern() {
+        return mPattern;
+    }
+
+    public Locale getLocale() {
+        return mLocale;
+    }
+
+    /**
+     * Appends the format applied to a number, like the temperature.
+     */
+    public StringBuilder appendTo(StringBuilder out, double number) {
+        return appendTo(out, number, null);
+    }
+
+    /**
+     * Appends the format applied to a number and a text, like the wind speed and its direction.
+     */
+    public StringBuilder appendTo(StringBuilder out, double number, String text) {
+        if (!mCompiled || Double.isNaN(number) || Math.abs(number) >= MAX_EXACT) {
+            return out.append(String.format(mLocale, mPattern, number, text));
+        }
+        for (int i = 0; i < mArguments.length; i++) {
+            out.append(mLiterals[i]);
+            if (mArguments[i] == ARGUMENT_NUMBER) {
+                appendRounded(out, number);
+            } else {
+                out.append(text);
+            }
+        }
+        return out.append(mLiterals[mArguments.length]);
+    }
+
+    // Writes the number like %.0f does
+    private void appendRounded(StringBuilder out, double number) {
+        // the sign of -0.0 and of numbers that round to 0 is written as well
+        if (Double.doubleToRawLongBits(number) < 0) {
+            out.append('-');
+            number = -number;
+        }
+        long whole = (long) number;
+        // exact, numbers below MAX_EXACT keep all bits of their fraction
+        if (number - whole >= 0.5) {
+            whole++;
+        }
+        int start = out.length();
+        do {
+            out.append((char) (mZeroDigit + (int) (whole % 10)));
+            whole /= 10;
+        } while (whole > 0);
+        // the digits were written backwards
+        for (int i = start, j = out.length() - 1; i < j; i++, j--) {
+            char c = out.charAt(i);
+            out.setCharAt(i, out.charAt(j));
+            out.setCharAt(j, c);
+        }
+    }
+
+    /*
+        Splits the pattern into the literals and the arguments between them. Only what the formats
+        of this app use is understood: %% and %n, and %.0f or %s with an optional argument index
+        and a width of at most 1, which changes nothing.
+     */
+    private static boolean parse(String pattern, List<String> literals, List<Integer> arguments) {
+        StringBuilder literal = new StringBuilder();
+        int ordinaryIndex = 0;
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i++);
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+            if (i == pattern.length()) {
+                return false;
+            }
+            if (pattern.charAt(i) == '%') {
+                literal.append('%');
+                i++;
+                continue;
+            }
+            if (pattern.charAt(i) == 'n') {
+                literal.append(System.getProperty("line.separator"));
+                i++;
+                continue;
+            }
+
+            // [argument_index$][width][.precision]conversion
+            int number = -1;
+            int start = i;
+            while (i < pattern.length() && Character.isDigit(pattern.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                number = Integer.parseInt(pattern.substring(start, i));
+            }
+            int index;
+            if (i < pattern.length() && pattern.charAt(i) == '$') {
+                if (number < 1) {
+                    return false;
+                }
+                index = number - 1;
+                i++;
+                start = i;
+                while (i < pattern.length() && Character.isDigit(pattern.charAt(i))) {
+                    i++;
+                }
+                number = i > start ? Integer.parseInt(pattern.substring(start, i)) : -1;
+            } else {
+                index = ordinaryIndex++;
+            }
+            int width = number;
+            if (width > 1) {
+                return false;
+            }
+            int precision = -1;
+            if (i < pattern.length() && pattern.charAt(i) == '.') {
+                start = ++i;
+                while (i < pattern.length() && Character.isDigit(pattern.charAt(i))) {
+                    i++;
+                }
+                if (i == start) {
+                    return false;
+                }
+                precision = Integer.parseInt(pattern.substring(start, i));
+            }
+            if (i == pattern.length()) {
+                return false;
+            }
+            char conversion = pattern.charAt(i++);
+            if (conversion == 'f' && precision == 0 && index == ARGUMENT_NUMBER) {
+                arguments.add(ARGUMENT_NUMBER);
+            } else if (conversion == 's' && precision == -1 && index == ARGUMENT_TEXT) {
+                arguments.add(ARGUMENT_TEXT);
+            } else {
+                return false;
+            }
+            literals.add(literal.toString());
+            literal.setLength(0);
+        }
+        literals.add(literal.toString());
+        return true;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.android.sunshine.common;
+
+/**
+ * A compact, fixed-width binary encoding of a {@link WeatherDataTelegram}.
+ *
+ * Version 1 takes {@link #LENGTH_V1} bytes, all big endian:
+ * <pre>
+ *   0  version (byte)
+ *   1  unit (byte)
+ *   2  weather condition (short)
+ *   4  maximum temperature (float)
+ *   8  minimum temperature (float)
+ * </pre>
+ * Version 2 appends the days after today:
+ * <pre>
+ *  12  number of days (byte)
+ *  13  length of a day (byte), {@link #DAY_LENGTH_V2}
+ *  14  the days, each of them:
+ *        0  weather condition (short)
+ *        2  maximum temperature (float)
+ *        6  minimum temperature (float)
+ *       10  humidity in percent (byte), 0xff if unknown
+ *       11  wind speed in tenths of km/h (short), 0xffff if unknown
+ * </pre>
+ * Later versions only append to this layout, to the telegram or to the days, so a decoder reads
+ * the fields it knows and ignores the bytes after them. A watch that only knows version 1 shows
+ * today's weather of a version 2 telegram. Watches built before this encoding read today from
+ * the data map keys {@link Protocol} writes next to it. The temperatures are encoded as floats, which is far
+ * more precise than they are shown.
+ */
+public final class WeatherTelegramCodec {
+
+    public static final byte VERSION_1 = 1;
+    public static final int LENGTH_V1 = 12;
+    public static final byte VERSION_2 = 2;
+    public static final int DAY_LENGTH_V2 = 13;
+    // The days have to fit into the count byte, and into a data item
+    public static final int MAX_DAYS = 14;
+
+    private static final int HEADER_LENGTH_V2 = LENGTH_V1 + 2;
+    private static final int UNKNOWN_HUMIDITY = 0xff;
+    private static final int UNKNOWN_WIND_SPEED = 0xffff;
+
+    private WeatherTelegramCodec() {
+    }
+
+    /**
+     * Encodes a telegram without days as version 1, one with days as version 2. At most
+     * {@link #MAX_DAYS} days are encoded.
+     */
+    public static byte[] encode(WeatherDataTelegram telegram) {
+        int days = Math.min(telegram.getForecastDayCount(), MAX_DAYS);
+        byte[] bytes = new byte[days == 0 ? LENGTH_V1 : HEADER_LENGTH_V2 + days * DAY_LENGTH_V2];
+        bytes[0] = days == 0 ? VERSION_1 : VERSION_2;
+        bytes[1] = (byte) telegram.getWeatherUnit().getValue();
+        putShort(bytes, 2, telegram.getWeatherConditionId());
+        putInt(bytes, 4, Float.floatToIntBits((float) telegram.getTemperatureMax()));
+        putInt(bytes, 8, Float.floatToIntBits((float) telegram.getTemperatureMin()));
+        if (days == 0) {
+            return bytes;
+        }
+
+        bytes[12] = (byte) days;
+        bytes[13] = DAY_LENGTH_V2;
+        for (int i = 0; i < days; i++) {
+            ForecastDay day = telegram.getForecastDay(i);
+            int offset = HEADER_LENGTH_V2 + i * DAY_LENGTH_V2;
+            putShort(bytes, offset, day.getWeatherConditionId());
+            putInt(bytes, offset + 2, Float.floatToIntBits((float) day.getTemperatureMax()));
+            putInt(bytes, offset + 6, Float.floatToIntBits((float) day.getTemperatureMin()));
+            double humidity = day.getHumidity();
+            bytes[offset + 10] = (byte) (Double.isNaN(humidity) ? UNKNOWN_HUMIDITY
+                    : Math.max(0, Math.min(100, Math.round(humidity))));
+            double windSpeed = day.getWindSpeed();
+            putShort(bytes, offset + 11, Double.isNaN(windSpeed) ? UNKNOWN_WIND_SPEED : (int)
+                    Math.max(0, Math.min(UNKNOWN_WIND_SPEED - 1, Math.round(windSpeed * 10))));
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the telegram, null if the bytes aren't a telegram of a known version
+     */
+    public static WeatherDataTelegram decode(byte[] bytes) {
+        if (bytes == null || bytes.length < LENGTH_V1 || bytes[0] < VERSION_1) {
+            return null;
+        }
+        return new WeatherDataTelegram(
+                WeatherUnit.fromValue(bytes[1]),
+                getShort(bytes, 2),
+                Float.intBitsToFloat(getInt(bytes, 4)),
+                Float.intBitsToFloat(getInt(bytes, 8)),
+                decodeDays(bytes));
+    }
+
+    private static ForecastDay[] decodeDays(byte[] bytes) {
+        if (bytes[0] < VERSION_2 || bytes.length < HEADER_LENGTH_V2) {
+            return new ForecastDay[0];
+        }
+        int dayLength = bytes[13] & 0xff;
+        if (dayLength < DAY_LENGTH_V2) {
+            return new ForecastDay[0];
+        }
+        // only the days that are there completely
+        int days = Math.min(bytes[12] & 0xff, (bytes.length - HEADER_LENGTH_V2) / dayLength);
+        ForecastDay[] forecast = new ForecastDay[days];
+        for (int i = 0; i < days; i++) {
+            int offset = HEADER_LENGTH_V2 + i * dayLength;
+            int humidity = bytes[offset + 10] & 0xff;
+            int windSpeed = getShort(bytes, offset + 11) & 0xffff;
+            forecast[i] = new ForecastDay(
+                    getShort(bytes, offset),
+                    Float.intBitsToFloat(getInt(bytes, offset + 2)),
+                    Float.intBitsToFloat(getInt(bytes, offset + 6)),
+                    humidity == UNKNOWN_HUMIDITY ? ForecastDay.UNKNOWN : humidity,
+                    windSpeed == UNKNOWN_WIND_SPEED ? ForecastDay.UNKNOWN : windSpeed / 10.0);
+        }
+        return forecast;
+    }
+
+    static void putShort(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >> 8);
+        bytes[offset + 1] = (byte) value;
+    }
+
+    static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >> 24);
+        bytes[offset + 1] = (byte) (value >> 16);
+        bytes[offset + 2] = (byte) (value >> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    static short getShort(byte[] bytes, int offset) {
+        return (short) ((bytes[offset] << 8) | (bytes[offset + 1] & 0xff));
+    }
+
+    static int getInt(byte[] bytes, int offset) {
+        return (bytes[offset] << 24)
+                | ((bytes[offset + 1] & 0xff) << 16)
+                | ((bytes[offset + 2] & 0xff) << 8)
+                | (bytes[offset + 3] & 0xff);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Base64;
+import android.util.Log;
+import android.util.Xml;
+
+import com.example.android.sunshine.common.WeatherDataTelegram;
+import com.example.android.sunshine.common.WeatherTelegramCodec;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+    Compares the latency of persisting and loading a telegram with the TelegramStore and with
+    the SharedPreferences the watch used before. The medians go to logcat.
+ */
+public class TestPersistenceBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "PersistenceBenchmark";
+
+    private static final int WARMUP_RUNS = 10;
+    private static final int RUNS = 100;
+
+    private static final String PREF_NAME = "test_sunshinewatchfacestate";
+    private static final String KEY_TELEGRAM = "WEATHER_TELEGRAM";
+
+    private File mFile;
+    private File mLastKnownGoodFile;
+
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mFile = new File(mContext.getCacheDir(), "benchmark_telegrams.bin");
+        mLastKnownGoodFile = new File(mContext.getCacheDir(), "benchmark_telegrams.lkg");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mFile.delete();
+        mLastKnownGoodFile.delete();
+        getPrefs().edit().clear().commit();
+        super.tearDown();
+    }
+
+    public void testPersist() throws Exception {
+        final TelegramStore store = new TelegramStore(mFile, mLastKnownGoodFile);
+        store.read();
+        long storeNanos = measure(new Operation() {
+            @Override
+            public void run() {
+                store.put(PersistenceHelper.LOCATION_PREFERRED, TestTelegramStore.WITH_DAYS);
+            }
+        });
+
+        final SharedPreferences prefs = getPrefs();
+        long prefsNanos = measure(new Operation() {
+            @Override
+            public void run() {
+                // commit, the store is on disk when put returns as well
+                byte[] bytes = WeatherTelegramCodec.encode(TestTelegramStore.WITH_DAYS);
+                prefs.edit()
+                        .putString(KEY_TELEGRAM, Base64.encodeToString(bytes, Base64.NO_WRAP))
+                        .commit();
+            }
+        });
+
+        report("persist", storeNanos, prefsNanos);
+    }
+
+    /*
+        Reading from disk, as when the process starts. The preferences keep what they read in
+        memory, so their file is parsed the way they do it.
+     */
+    public void testLoad() throws Exception {
+        new TelegramStore(mFile, mLastKnownGoodFile)
+                .put(PersistenceHelper.LOCATION_PREFERRED, TestTelegramStore.WITH_DAYS);
+        long storeNanos = measure(new Operation() {
+            @Override
+            public void run() {
+                TelegramStore store = new TelegramStore(mFile, mLastKnownGoodFile);
+                assertTrue(store.read());
+                assertNotNull(store.get(PersistenceHelper.LOCATION_PREFERRED));
+            }
+        });
+
+        byte[] bytes = WeatherTelegramCodec.encode(TestTelegramStore.WITH_DAYS);
+        getPrefs().edit()
+                .putString(KEY_TELEGRAM, Base64.encodeToString(bytes, Base64.NO_WRAP))
+                .commit();
+        final File prefsFile = new File(new File(mContext.getApplicationInfo().dataDir,
+                "shared_prefs"), PREF_NAME + ".xml");
+        assertTrue(prefsFile.exists());
+        long prefsNanos = measure(new Operation() {
+            @Override
+            public void run() throws Exception {
+                assertNotNull(readTelegramFromXml(prefsFile));
+            }
+        });
+
+        report("load", storeNanos, prefsNanos);
+    }
+
+    private static WeatherDataTelegram readTelegramFromXml(File file) throws Exception {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            XmlPullParser parser = Xml.newPullParser();
+            parser.setInput(in, "UTF-8");
+            for (int event = parser.getEventType(); event != XmlPullParser.END_DOCUMENT;
+                 event = parser.next()) {
+                if (event == XmlPullParser.START_TAG && "string".equals(parser.getName())
+                        && KEY_TELEGRAM.equals(parser.getAttributeValue(null, "name"))) {
+                    return WeatherTelegramCodec.decode(
+                            Base64.decode(parser.nextText(), Base64.NO_WRAP));
+                }
+            }
+            return null;
+        } finally {
+            in.close();
+        }
+    }
+
+    private SharedPreferences getPrefs() {
+        return mContext.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static long measure(Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            operation.run();
+        }
+        long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            operation.run();
+            nanos[i] = SystemClock.elapsedRealtimeNanos() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[RUNS / 2];
+    }
+
+    private static void report(String name, long storeNanos, long prefsNanos) {
+        Log.i(TAG, String.format(Locale.US, "%s: store %.1f us, preferences %.1f us (median of %d)",
+                name, storeNanos / 1000.0, prefsNanos / 1000.0, RUNS));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.common.ForecastDay;
+import com.example.android.sunshine.common.WeatherDataTelegram;
+import com.example.android.sunshine.common.WeatherUnit;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+public class TestTelegramStore extends AndroidTestCase {
+
+    static final WeatherDataTelegram TODAY =
+            new WeatherDataTelegram(WeatherUnit.Celcius, 500, 18.5, 11.25);
+    static final WeatherDataTelegram WITH_DAYS = new WeatherDataTelegram(
+            WeatherUnit.Celcius, 800, 24.5, 12.75, new ForecastDay[] {
+                    new ForecastDay(501, 20, 10, 70, 12.5),
+                    new ForecastDay(600, -1.5, -6, ForecastDay.UNKNOWN, ForecastDay.UNKNOWN)
+            });
+
+    private File mFile;
+    private File mLastKnownGoodFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mFile = new File(mContext.getCacheDir(), "test_telegrams.bin");
+        mLastKnownGoodFile = new File(mContext.getCacheDir(), "test_telegrams.lkg");
+        deleteFiles();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteFiles();
+        super.tearDown();
+    }
+
+    public void testReadsWhatWasWritten() {
+        TelegramStore store = createStore();
+        assertFalse(store.read());
+
+        store.put("94043", WITH_DAYS);
+        store.put("10115", TODAY);
+
+        TelegramStore other = createStore();
+        assertTrue(other.read());
+        assertEquals(WITH_DAYS, other.get("94043"));
+        assertEquals(TODAY, other.get("10115"));
+        assertTrue(other.contains("94043", WITH_DAYS));
+        assertFalse(other.contains("10115", WITH_DAYS));
+        assertNull(other.get("unknown"));
+    }
+
+    public void testFallsBackToLastKnownGood() throws Exception {
+        TelegramStore store = createStore();
+        store.read();
+        store.put("94043", TODAY);
+        // the file holding TODAY becomes the last known good one
+        store.put("94043", WITH_DAYS);
+
+        // damage one byte of the telegrams, the CRC doesn't match anymore
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xff);
+        } finally {
+            file.close();
+        }
+
+        TelegramStore other = createStore();
+        assertTrue(other.read());
+        assertEquals(TODAY, other.get("94043"));
+
+        // the damaged file isn't kept as the last known good one
+        other.put("94043", WITH_DAYS);
+        TelegramStore third = createStore();
+        assertTrue(third.read());
+        assertEquals(WITH_DAYS, third.get("94043"));
+    }
+
+    public void testRejectsTruncatedFile() throws Exception {
+        TelegramStore store = createStore();
+        store.read();
+        store.put("94043", WITH_DAYS);
+
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.setLength(file.length() - 3);
+        } finally {
+            file.close();
+        }
+        assertFalse(createStore().read());
+    }
+
+    private TelegramStore createStore() {
+        return new TelegramStore(mFile, mLastKnownGoodFile);
+    }
+
+    private void deleteFiles() {
+        for (File file : new File[] {mFile, mLastKnownGoodFile}) {
+            file.delete();
+            new File(file.getPath() + ".bak").delete();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.android.sunshine.app;
+
+import android.os.Debug;
+import android.test.AndroidTestCase;
+
+import java.text.DateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+public class TestTimeTextBuffer extends AndroidTestCase {
+
+    private static final long MINUTE_IN_MILLIS = 60 * 1000;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    // A day with a change of the time zone in the middle of it
+    private static final TimeZone[] TIME_ZONES = {
+            TimeZone.getTimeZone("America/Los_Angeles"),
+            TimeZone.getTimeZone("Asia/Tokyo")
+    };
+
+    private static final Locale[] LOCALES = {
+            Locale.US, Locale.GERMANY, Locale.FRANCE, Locale.JAPAN, new Locale("ar", "EG")
+    };
+
+    private Locale mDefaultLocale;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDefaultLocale = Locale.getDefault();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Locale.setDefault(mDefaultLocale);
+        super.tearDown();
+    }
+
+    public void testMatchesFormattedText() {
+        for (Locale locale : LOCALES) {
+            Locale.setDefault(locale);
+            TimeTextBuffer buffer = new TimeTextBuffer();
+            Calendar calendar = new GregorianCalendar(TIME_ZONES[0]);
+            long start = startOfDay(calendar);
+
+            // one minute after the other, so the minute, hour and midnight rollovers are seen
+            for (int minute = 0; minute <= MINUTES_PER_DAY; minute++) {
+                if (minute == MINUTES_PER_DAY / 2) {
+                    calendar.setTimeZone(TIME_ZONES[1]);
+                    buffer.invalidate();
+                }
+                calendar.setTimeInMillis(start + minute * MINUTE_IN_MILLIS);
+                buffer.update(calendar);
+
+                DateFormat dateFormat = DateFormat.getDateInstance();
+                dateFormat.setTimeZone(calendar.getTimeZone());
+                String message = "Error: Different text at minute " + minute + " in " + locale;
+                assertEquals(message, String.format("%d:%02d",
+                                calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE)),
+                        new String(buffer.time, 0, buffer.timeLength));
+                assertEquals(message, dateFormat.format(calendar.getTime()),
+                        new String(buffer.date, 0, buffer.dateLength));
+            }
+        }
+    }
+
+    public void testUpdateReportsChanges() {
+        TimeTextBuffer buffer = new TimeTextBuffer();
+        Calendar calendar = new GregorianCalendar(TIME_ZONES[0]);
+        long start = startOfDay(calendar) - MINUTE_IN_MILLIS;
+
+        calendar.setTimeInMillis(start);
+        assertEquals(TimeTextBuffer.TIME_CHANGED | TimeTextBuffer.DATE_CHANGED,
+                buffer.update(calendar));
+        calendar.setTimeInMillis(start + 1000);
+        assertEquals(0, buffer.update(calendar));
+        // midnight
+        calendar.setTimeInMillis(start + MINUTE_IN_MILLIS);
+        assertEquals(TimeTextBuffer.TIME_CHANGED | TimeTextBuffer.DATE_CHANGED,
+                buffer.update(calendar));
+        calendar.setTimeInMillis(start + 2 * MINUTE_IN_MILLIS);
+        assertEquals(TimeTextBuffer.TIME_CHANGED, buffer.update(calendar));
+    }
+
+    /*
+        A simulated day of a watch face drawing one frame per second doesn't allocate, not even
+        at midnight or when the time zone changes.
+     */
+    public void testUpdateDoesNotAllocate() {
+        TimeTextBuffer buffer = new TimeTextBuffer();
+        Calendar calendar = new GregorianCalendar(TIME_ZONES[0]);
+        long start = startOfDay(calendar) - MINUTES_PER_DAY / 2 * MINUTE_IN_MILLIS;
+        // the first update compiles the date pattern of the locale
+        calendar.setTimeInMillis(start);
+        buffer.update(calendar);
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        try {
+            for (int second = 0; second < MINUTES_PER_DAY * 60; second++) {
+                if (second == MINUTES_PER_DAY * 30) {
+                    calendar.setTimeZone(TIME_ZONES[1]);
+                    buffer.invalidate();
+                }
+                calendar.setTimeInMillis(start + second * 1000L);
+                buffer.update(calendar);
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        int allocations = Debug.getThreadAllocCount();
+        assertEquals("Error: " + allocations + " allocations in a day", 0, allocations);
+    }
+
+    private static long startOfDay(Calendar calendar) {
+        calendar.setTimeInMillis(System.currentTimeMillis());
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+}
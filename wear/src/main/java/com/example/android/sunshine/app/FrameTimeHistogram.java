@@ -0,0 +1,67 @@
+package com.example.android.sunshine.app;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counts how long frames take to draw, in buckets of a quarter millisecond up to
+ * {@link #MAX_MILLIS}. Recording doesn't allocate, so it can run in every frame.
+ */
+final class FrameTimeHistogram {
+
+    static final int MAX_MILLIS = 32;
+    private static final int BUCKETS_PER_MILLI = 4;
+    private static final long NANOS_PER_BUCKET = 1000000 / BUCKETS_PER_MILLI;
+
+    // The last bucket takes all frames of MAX_MILLIS and longer
+    private final int[] mBuckets = new int[MAX_MILLIS * BUCKETS_PER_MILLI + 1];
+    private int mCount;
+    private long mTotalNanos;
+    private long mMaxNanos;
+
+    void record(long nanos) {
+        int bucket = (int) Math.min(nanos / NANOS_PER_BUCKET, mBuckets.length - 1);
+        mBuckets[bucket]++;
+        mCount++;
+        mTotalNanos += nanos;
+        mMaxNanos = Math.max(mMaxNanos, nanos);
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound of the bucket the percentile falls into, in milliseconds
+     */
+    float getPercentileMillis(int percentile) {
+        int target = (int) Math.ceil(mCount * percentile / 100.0);
+        int seen = 0;
+        for (int i = 0; i < mBuckets.length; i++) {
+            seen += mBuckets[i];
+            if (seen >= target && seen > 0) {
+                return (float) (i + 1) / BUCKETS_PER_MILLI;
+            }
+        }
+        return 0;
+    }
+
+    void reset() {
+        Arrays.fill(mBuckets, 0);
+        mCount = 0;
+        mTotalNanos = 0;
+        mMaxNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        if (mCount == 0) {
+            return "no frames";
+        }
+        return String.format(Locale.US, "%d frames, avg %.2f ms, p50 %.2f ms, p90 %.2f ms, "
+                        + "p99 %.2f ms, max %.2f ms", mCount, mTotalNanos / 1e6 / mCount,
+                getPercentileMillis(50), getPercentileMillis(90), getPercentileMillis(99),
+                mMaxNanos / 1e6);
+    }
+}
@@ -2,47 +2,86 @@ package com.example.android.sunshine.app;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.util.Base64;
 
 import com.example.android.sunshine.common.WeatherDataTelegram;
+import com.example.android.sunshine.common.WeatherTelegramCodec;
 import com.example.android.sunshine.common.WeatherUnit;
 
+import java.io.File;
+
+/**
+ * Keeps the last telegram in a {@link TelegramStore}, which is read once per process.
+ */
 public final class PersistenceHelper {
 
-    private static String PREF_NAME = "sunshinewatchfacestate";
+    // The watch only gets the weather of the preferred location
+    static String LOCATION_PREFERRED = "";
 
+    private static String FILE_NAME = "telegrams.bin";
+    private static String LAST_KNOWN_GOOD_FILE_NAME = "telegrams.lkg";
+
+    // Where earlier versions kept the telegram, migrated into the store on first use
+    private static String PREF_NAME = "sunshinewatchfacestate";
+    private static String KEY_TELEGRAM = "WEATHER_TELEGRAM";
     private static String KEY_CONDITION = "WEATHER_CONDITION";
     private static String KEY_TEMP_MIN = "WEATHER_TEMP_MIN";
     private static String KEY_TEMP_MAX = "WEATHER_TEMP_MAX";
     private static String KEY_TEMP_UNIT = "WEATHER_TEMP_UNIT";
 
+    private static TelegramStore sStore;
+
     private PersistenceHelper() {
     }
 
     public static void persistTelegram(Context context, WeatherDataTelegram telegram) {
+        getStore(context).put(LOCATION_PREFERRED, telegram);
+    }
 
-        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-
-        prefs.edit()
-                .putInt(KEY_CONDITION, telegram.getWeatherConditionId())
-                .putFloat(KEY_TEMP_MAX, (float)telegram.getTemperatureMax())
-                .putFloat(KEY_TEMP_MIN, (float)telegram.getTemperatureMin())
-                .putInt(KEY_TEMP_UNIT, telegram.getWeatherUnit().getValue())
-                .apply();
+    /**
+     * @return true if the telegram is the persisted one, as far as it is persisted
+     */
+    public static boolean isPersisted(Context context, WeatherDataTelegram telegram) {
+        return getStore(context).contains(LOCATION_PREFERRED, telegram);
     }
 
     public static WeatherDataTelegram loadTelegram(Context context) {
+        return getStore(context).get(LOCATION_PREFERRED);
+    }
+
+    static synchronized TelegramStore getStore(Context context) {
+        if (sStore == null) {
+            File dir = context.getApplicationContext().getFilesDir();
+            sStore = new TelegramStore(new File(dir, FILE_NAME),
+                    new File(dir, LAST_KNOWN_GOOD_FILE_NAME));
+            if (!sStore.read()) {
+                migrate(context, sStore);
+            }
+        }
+        return sStore;
+    }
+
+    private static void migrate(Context context, TelegramStore store) {
 
         SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
 
-        if(!prefs.contains(KEY_CONDITION)) {
-            return null;
+        WeatherDataTelegram telegram = null;
+        String encoded = prefs.getString(KEY_TELEGRAM, null);
+        if (encoded != null) {
+            telegram = WeatherTelegramCodec.decode(Base64.decode(encoded, Base64.NO_WRAP));
+        }
+        if (telegram == null && prefs.contains(KEY_CONDITION)) {
+            telegram = new WeatherDataTelegram(
+                    WeatherUnit.fromValue(prefs.getInt(KEY_TEMP_UNIT, 0)),
+                    prefs.getInt(KEY_CONDITION, -1),
+                    prefs.getFloat(KEY_TEMP_MAX, 0),
+                    prefs.getFloat(KEY_TEMP_MIN, 0)
+            );
         }
 
-        return new WeatherDataTelegram(
-                WeatherUnit.fromValue(prefs.getInt(KEY_TEMP_UNIT, 0)),
-                prefs.getInt(KEY_CONDITION, -1),
-                prefs.getFloat(KEY_TEMP_MAX, 0),
-                prefs.getFloat(KEY_TEMP_MIN, 0)
-        );
+        if (telegram != null) {
+            store.put(LOCATION_PREFERRED, telegram);
+            prefs.edit().clear().apply();
+        }
     }
 }
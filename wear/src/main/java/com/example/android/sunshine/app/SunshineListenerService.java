@@ -13,6 +13,7 @@ import com.google.android.gms.wearable.DataMapItem;
 import com.google.android.gms.wearable.WearableListenerService;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.greenrobot.event.EventBus;
 
@@ -20,6 +21,10 @@ public class SunshineListenerService extends WearableListenerService {
 
     private static final String TAG = SunshineListenerService.class.getSimpleName();
 
+    // Telegrams taken over vs the ones that were the same as the shown one
+    private static final AtomicInteger sReceivedCount = new AtomicInteger();
+    private static final AtomicInteger sSuppressedCount = new AtomicInteger();
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -57,8 +62,15 @@ public class SunshineListenerService extends WearableListenerService {
     private void persistDataAndNotify(DataMapItem dataMapItem) {
         WeatherDataTelegram telegram = Protocol.telegramFromData(dataMapItem.getDataMap());
 
-        PersistenceHelper.persistTelegram(this, telegram);
+        if (PersistenceHelper.isPersisted(this, telegram)) {
+            // nothing changed, don't wake up the watch face
+            sSuppressedCount.incrementAndGet();
+        } else {
+            sReceivedCount.incrementAndGet();
+            PersistenceHelper.persistTelegram(this, telegram);
 
-        EventBus.getDefault().post(new WeatherDataUpdatedEvent());
+            EventBus.getDefault().post(new WeatherDataUpdatedEvent());
+        }
+        Log.d(TAG, "Received " + sReceivedCount + ", suppressed " + sSuppressedCount);
     }
 }
@@ -20,25 +20,27 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.res.Configuration;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
-import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
+import android.util.Log;
 import android.view.Gravity;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 
 import com.example.android.sunshine.app.events.WeatherDataUpdatedEvent;
 import com.example.android.sunshine.common.CommonUtils;
+import com.example.android.sunshine.common.ForecastDay;
 import com.example.android.sunshine.common.WeatherDataTelegram;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.TimeZone;
@@ -48,9 +50,38 @@ import de.greenrobot.event.EventBus;
 /**
  * Digital watch face with seconds. In ambient mode, the seconds aren't displayed. On devices with
  * low-bit ambient mode, the text is drawn without anti-aliasing in ambient mode.
+ *
+ * Everything but the time - the background stripes, the date and the weather - is rendered into
+ * a bitmap that is only rebuilt when one of them changes, so a frame is that bitmap and the
+ * time on top of it.
  */
 public class SunshineWatchface extends CanvasWatchFaceService {
 
+    private static final String TAG = SunshineWatchface.class.getSimpleName();
+
+    // Shared by all engines, the preview in the picker included
+    private WeatherIconCache mIconCache;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        mIconCache = new WeatherIconCache(getResources(), getTheme(),
+                getResources().getColor(R.color.black));
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        // the icons may look different now, like for another density
+        mIconCache.evictAll();
+    }
+
+    @Override
+    public void onDestroy() {
+        mIconCache.evictAll();
+        super.onDestroy();
+    }
+
     @Override
     public Engine onCreateEngine() {
         return new Engine();
@@ -60,7 +91,8 @@ public class SunshineWatchface extends CanvasWatchFaceService {
         final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mTime = GregorianCalendar.getInstance(TimeZone.getTimeZone(intent.getStringExtra("time-zone")));
+                mTime.setTimeZone(TimeZone.getTimeZone(intent.getStringExtra("time-zone")));
+                mTimeText.invalidate();
             }
         };
 
@@ -72,6 +104,7 @@ public class SunshineWatchface extends CanvasWatchFaceService {
         Paint mTextPaintLightSmall;
         Paint mTextPaintDarkBig;
         Paint mTextPaintDarkSmall;
+        Paint mTextPaintForecast;
 
         boolean mAmbient;
 
@@ -79,12 +112,28 @@ public class SunshineWatchface extends CanvasWatchFaceService {
 
         WeatherDataTelegram mCurrentWeatherData;
 
+        // Everything but the time, see renderStaticLayer
+        Bitmap mStaticLayer;
+        Canvas mStaticCanvas;
+        boolean mStaticLayerDirty = true;
+
+        // The texts are only written again when the minute or the day changes
+        final TimeTextBuffer mTimeText = new TimeTextBuffer();
+        // The height of the digits, so the layout doesn't depend on the current time
+        int mTimeTextHeight;
+
+        final FrameTimeHistogram mFrameTimes = new FrameTimeHistogram();
+
         /**
          * Whether the display supports fewer bits for each color in ambient mode. When true, we
          * disable anti-aliasing in ambient mode.
          */
         boolean mLowBitAmbient;
 
+        boolean mBurnInProtection;
+
+        boolean mIsRound;
+
         @Override
         public void onCreate(SurfaceHolder holder) {
             super.onCreate(holder);
@@ -110,6 +159,8 @@ public class SunshineWatchface extends CanvasWatchFaceService {
             mTextPaintLightSmall = createTextPaint(resources.getColor(R.color.digital_text_light));
             mTextPaintDarkBig = createTextPaint(resources.getColor(R.color.digital_text_dark));
             mTextPaintDarkSmall = createTextPaint(resources.getColor(R.color.digital_text_dark));
+            mTextPaintForecast = createTextPaint(resources.getColor(R.color.digital_text_dark));
+            mTextPaintForecast.setTextAlign(Paint.Align.CENTER);
 
             mTime = GregorianCalendar.getInstance();
 
@@ -129,6 +180,7 @@ public class SunshineWatchface extends CanvasWatchFaceService {
         @Override
         public void onDestroy() {
             EventBus.getDefault().unregister(this);
+            releaseStaticLayer();
 
             super.onDestroy();
         }
@@ -136,9 +188,18 @@ public class SunshineWatchface extends CanvasWatchFaceService {
         @SuppressWarnings("unused")
         public void onEventMainThread(WeatherDataUpdatedEvent event) {
             mCurrentWeatherData = PersistenceHelper.loadTelegram(getApplicationContext());
+            mStaticLayerDirty = true;
             invalidate();
         }
 
+        private void releaseStaticLayer() {
+            if (mStaticLayer != null) {
+                mStaticLayer.recycle();
+                mStaticLayer = null;
+                mStaticCanvas = null;
+            }
+        }
+
         private Paint createTextPaint(int textColor) {
             Paint paint = new Paint();
             paint.setColor(textColor);
@@ -155,9 +216,15 @@ public class SunshineWatchface extends CanvasWatchFaceService {
                 registerReceiver();
 
                 // Update time zone in case it changed while we weren't visible.
-                mTime = GregorianCalendar.getInstance(TimeZone.getDefault());
+                mTime.setTimeZone(TimeZone.getDefault());
+                mTimeText.invalidate();
             } else {
                 unregisterReceiver();
+
+                if (mFrameTimes.getCount() > 0) {
+                    Log.d(TAG, "Frame times: " + mFrameTimes);
+                    mFrameTimes.reset();
+                }
             }
         }
 
@@ -185,6 +252,7 @@ public class SunshineWatchface extends CanvasWatchFaceService {
             // Load resources that have alternate values for round watches.
             Resources resources = SunshineWatchface.this.getResources();
             boolean isRound = insets.isRound();
+            mIsRound = isRound;
 
             float textSizeLightSmall = resources.getDimension(isRound
                     ? R.dimen.digital_text_size_light_small_round : R.dimen.digital_text_size_light_small);
@@ -198,13 +266,27 @@ public class SunshineWatchface extends CanvasWatchFaceService {
             mTextPaintLightSmall.setTextSize(textSizeLightSmall);
             mTextPaintLightBig.setTextSize(textSizeLightBig);
             mTextPaintDarkSmall.setTextSize(textSizeDarkSmall);
+            mTextPaintForecast.setTextSize(textSizeDarkSmall * FORECAST_TEXT_SCALE);
             mTextPaintDarkBig.setTextSize(textSizeDarkBig);
+
+            mTextPaintLightBig.getTextBounds("00:00", 0, 5, lTimeTextBounds);
+            mTimeTextHeight = lTimeTextBounds.height();
+            mTimeText.invalidate();
+            mStaticLayerDirty = true;
+        }
+
+        @Override
+        public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+            super.onSurfaceChanged(holder, format, width, height);
+            releaseStaticLayer();
         }
 
         @Override
         public void onPropertiesChanged(Bundle properties) {
             super.onPropertiesChanged(properties);
             mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
+            mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+            mStaticLayerDirty = true;
         }
 
         @Override
@@ -224,8 +306,10 @@ public class SunshineWatchface extends CanvasWatchFaceService {
                     mTextPaintLightSmall.setAntiAlias(!inAmbientMode);
                     mTextPaintDarkBig.setAntiAlias(!inAmbientMode);
                     mTextPaintDarkSmall.setAntiAlias(!inAmbientMode);
+                    mTextPaintForecast.setAntiAlias(!inAmbientMode);
                 }
                 setBackgroundColors(resources);
+                mStaticLayerDirty = true;
                 invalidate();
             }
         }
@@ -233,26 +317,54 @@ public class SunshineWatchface extends CanvasWatchFaceService {
         //instantiate it here even if it only gets used locally to avoid object instantiation in onDraw
         private Rect lTimeTextBounds = new Rect();
         private Rect lDateTextBounds = new Rect();
-        private DateFormat lDateFormat = SimpleDateFormat.getDateInstance();
         private Rect lMiddleStripeRect = new Rect();
         private Rect lUpperStripeRect = new Rect();
         private Rect lLowerStripeRect = new Rect();
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+
+            //1. update the texts that changed since the last frame
+            mTime.setTimeInMillis(System.currentTimeMillis());
+            int changed = mTimeText.update(mTime);
+            if ((changed & TimeTextBuffer.TIME_CHANGED) != 0) {
+                mTextPaintLightBig.getTextBounds(mTimeText.time, 0, mTimeText.timeLength,
+                        lTimeTextBounds);
+            }
+            if ((changed & TimeTextBuffer.DATE_CHANGED) != 0) {
+                mTextPaintLightSmall.getTextBounds(mTimeText.date, 0, mTimeText.dateLength,
+                        lDateTextBounds);
+                mStaticLayerDirty = true;
+            }
 
-            //1. calculate relevant sizes
-            mTime = GregorianCalendar.getInstance();
-            int hour = mTime.get(Calendar.HOUR_OF_DAY);
-            int minutes = mTime.get(Calendar.MINUTE);
+            //2. rebuild the static layer if needed
+            if (mStaticLayer == null
+                    || mStaticLayer.getWidth() != bounds.width()
+                    || mStaticLayer.getHeight() != bounds.height()) {
+                releaseStaticLayer();
+                mStaticLayer = Bitmap.createBitmap(bounds.width(), bounds.height(),
+                        Bitmap.Config.ARGB_8888);
+                mStaticCanvas = new Canvas(mStaticLayer);
+                mStaticLayerDirty = true;
+            }
+            if (mStaticLayerDirty) {
+                renderStaticLayer(bounds);
+            }
 
-            String timeText = String.format("%d:%02d", hour, minutes);
-            mTextPaintLightBig.getTextBounds(timeText, 0, timeText.length(), lTimeTextBounds);
+            //3. draw the static layer and the time on top
+            canvas.drawBitmap(mStaticLayer, bounds.left, bounds.top, null);
+            drawTime(canvas, lMiddleStripeRect, mTimeText, lTimeTextBounds);
 
-            String dateText = lDateFormat.format(mTime.getTime());
-            mTextPaintLightSmall.getTextBounds(dateText, 0, dateText.length(), lDateTextBounds);
+            mFrameTimes.record(SystemClock.elapsedRealtimeNanos() - startNanos);
+        }
 
-            getMiddleStripeRect(bounds, lTimeTextBounds.height(), lDateTextBounds.height(), lMiddleStripeRect);
+        /**
+         * Draws the backgrounds, the date and the weather into the static layer and lays out the
+         * stripes the time is drawn into.
+         */
+        private void renderStaticLayer(Rect bounds) {
+            getMiddleStripeRect(bounds, mTimeTextHeight, lDateTextBounds.height(), lMiddleStripeRect);
 
             lUpperStripeRect.left = 0;
             lUpperStripeRect.top = 0;
@@ -264,14 +376,13 @@ public class SunshineWatchface extends CanvasWatchFaceService {
             lLowerStripeRect.right = lMiddleStripeRect.right;
             lLowerStripeRect.bottom = bounds.bottom;
 
-            //2. draw backgrounds
-            drawBackgrounds(canvas, bounds, lMiddleStripeRect);
+            drawBackgrounds(mStaticCanvas, bounds, lMiddleStripeRect);
+            drawDate(mStaticCanvas, lMiddleStripeRect, mTimeTextHeight, mTimeText, lDateTextBounds);
+            drawTemperatures(mStaticCanvas, lLowerStripeRect, true);
+            drawWeatherIcon(mStaticCanvas, lLowerStripeRect);
+            drawForecast(mStaticCanvas, lUpperStripeRect);
 
-            //3. draw content
-            drawTime(canvas, lMiddleStripeRect, timeText, lTimeTextBounds);
-            drawDate(canvas, lMiddleStripeRect, lTimeTextBounds, dateText, lDateTextBounds);
-            drawTemperatures(canvas, lLowerStripeRect, true);
-            drawWeatherIcon(canvas, lLowerStripeRect);
+            mStaticLayerDirty = false;
         }
 
         private static final int TIME_DATE_MARGIN_PX = 10;
@@ -297,19 +408,19 @@ public class SunshineWatchface extends CanvasWatchFaceService {
             canvas.drawRect(middleStripeRect, mBackgroundDarkPaint);
         }
 
-        private void drawTime(Canvas canvas, Rect middleStripeRect, String timeText, Rect timeTextBounds) {
+        private void drawTime(Canvas canvas, Rect middleStripeRect, TimeTextBuffer timeText, Rect timeTextBounds) {
 
             int left = (middleStripeRect.width() - timeTextBounds.width()) / 2; //centered
-            int top = middleStripeRect.top + MIDDLE_STRIPE_MARGIN_PX + timeTextBounds.height();
+            int top = middleStripeRect.top + MIDDLE_STRIPE_MARGIN_PX + mTimeTextHeight;
 
-            canvas.drawText(timeText, left, top, mTextPaintLightBig);
+            canvas.drawText(timeText.time, 0, timeText.timeLength, left, top, mTextPaintLightBig);
         }
 
-        private void drawDate(Canvas canvas, Rect middleStripeRect, Rect timeTextBounds, String dateText, Rect dateTextBounds) {
+        private void drawDate(Canvas canvas, Rect middleStripeRect, int timeTextHeight, TimeTextBuffer dateText, Rect dateTextBounds) {
             int left = (middleStripeRect.width() - dateTextBounds.width()) / 2; //centered
-            int top = MIDDLE_STRIPE_MARGIN_PX + middleStripeRect.top + timeTextBounds.height() + TIME_DATE_MARGIN_PX + dateTextBounds.height();
+            int top = MIDDLE_STRIPE_MARGIN_PX + middleStripeRect.top + timeTextHeight + TIME_DATE_MARGIN_PX + dateTextBounds.height();
 
-            canvas.drawText(dateText, left, top, mTextPaintLightSmall);
+            canvas.drawText(dateText.date, 0, dateText.dateLength, left, top, mTextPaintLightSmall);
         }
 
         private Rect lTemperatureTextRect = new Rect();
@@ -338,30 +449,78 @@ public class SunshineWatchface extends CanvasWatchFaceService {
         }
 
         private static final int ICON_SIZE_PX = 50;
-        private Drawable lWeatherIconDrawable = null;
-        private int lWeatherIconConditionId = -1;
 
         private void drawWeatherIcon(Canvas canvas, Rect targetStripeRect) {
-            if(isInAmbientMode()) {
+            int variant = getIconVariant();
+            if(mCurrentWeatherData == null || variant == -1) {
+                return;
+            }
+
+            int resId = CommonUtils.getIconResourceForWeatherCondition(mCurrentWeatherData.getWeatherConditionId());
+            if(resId == -1) {
+                return;
+            }
+            Bitmap icon = mIconCache.get(resId, ICON_SIZE_PX, mIsRound, variant);
+
+            int top = targetStripeRect.top + MIDDLE_STRIPE_MARGIN_PX / 2;
+            int left = targetStripeRect.width() / 2 - ICON_SIZE_PX / 2;
+            canvas.drawBitmap(icon, left, top, null);
+        }
+
+        /**
+         * @return the variant of the weather icons to draw, -1 for none
+         */
+        private int getIconVariant() {
+            if(!isInAmbientMode()) {
+                return WeatherIconCache.VARIANT_INTERACTIVE;
+            } else if(mBurnInProtection) {
+                // a steady icon would burn into the screen
+                return -1;
+            } else {
+                return mLowBitAmbient
+                        ? WeatherIconCache.VARIANT_LOW_BIT : WeatherIconCache.VARIANT_AMBIENT;
+            }
+        }
+
+        private static final int FORECAST_DAYS = 4;
+        private static final int FORECAST_ICON_SIZE_PX = 24;
+        private static final float FORECAST_TEXT_SCALE = 0.7f;
+        // The part of the width the days take, round screens are narrower at the top
+        private static final float FORECAST_WIDTH = 0.7f;
+        private static final float FORECAST_WIDTH_ROUND = 0.55f;
+
+        /**
+         * Draws the days after today side by side, each as an icon over its highest temperature,
+         * at the bottom of the stripe.
+         */
+        private void drawForecast(Canvas canvas, Rect targetStripeRect) {
+            if(mCurrentWeatherData == null || mCurrentWeatherData.getForecastDayCount() == 0) {
+                return;
+            }
+            int days = Math.min(mCurrentWeatherData.getForecastDayCount(), FORECAST_DAYS);
+            int variant = getIconVariant();
+
+            float width = targetStripeRect.width() * (mIsRound ? FORECAST_WIDTH_ROUND : FORECAST_WIDTH);
+            float columnWidth = width / days;
+            float textBaseline = targetStripeRect.bottom - MIDDLE_STRIPE_MARGIN_PX / 2;
+            float iconTop = textBaseline - mTextPaintForecast.getTextSize() - FORECAST_ICON_SIZE_PX;
+            if(iconTop < targetStripeRect.top) {
+                // not enough room on this screen
                 return;
             }
-            if(mCurrentWeatherData != null) {
-                //only get a new drawable when it might have been changed
-                if(lWeatherIconConditionId != mCurrentWeatherData.getWeatherConditionId()) {
-                    int resId = CommonUtils.getIconResourceForWeatherCondition(mCurrentWeatherData.getWeatherConditionId());
-                    lWeatherIconDrawable = getResources().getDrawable(resId, getTheme());
-                }
 
-                if(lWeatherIconDrawable != null) {
-                    int imgLength = ICON_SIZE_PX;
-                    int top = targetStripeRect.top + MIDDLE_STRIPE_MARGIN_PX / 2;
-                    int left = targetStripeRect.width() / 2 - imgLength / 2;
-                    int right = targetStripeRect.width() / 2 + imgLength / 2;
-                    int bottom = top + imgLength;
+            String unit = mCurrentWeatherData.getWeatherUnit().getmSuffix();
+            for(int i = 0; i < days; i++) {
+                ForecastDay day = mCurrentWeatherData.getForecastDay(i);
+                float centerX = targetStripeRect.centerX() - width / 2 + columnWidth * (i + 0.5f);
 
-                    lWeatherIconDrawable.setBounds(left, top, right, bottom);
-                    lWeatherIconDrawable.draw(canvas);
+                int resId = CommonUtils.getIconResourceForWeatherCondition(day.getWeatherConditionId());
+                if(resId != -1 && variant != -1) {
+                    Bitmap icon = mIconCache.get(resId, FORECAST_ICON_SIZE_PX, mIsRound, variant);
+                    canvas.drawBitmap(icon, centerX - FORECAST_ICON_SIZE_PX / 2, iconTop, null);
                 }
+                canvas.drawText((int) day.getTemperatureMax() + unit, centerX, textBaseline,
+                        mTextPaintForecast);
             }
         }
 
@@ -0,0 +1,234 @@
+package com.example.android.sunshine.app;
+
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.example.android.sunshine.common.WeatherDataTelegram;
+import com.example.android.sunshine.common.WeatherTelegramCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The telegrams of the watch face in a small binary file, one per location, each encoded by
+ * {@link WeatherTelegramCodec} so the days after today are kept as well.
+ *
+ * The file is written in one go through an {@link AtomicFile}:
+ * <pre>
+ *   0  magic (int), {@link #MAGIC}
+ *   4  format version (byte)
+ *   5  number of telegrams (byte)
+ *   6  length of the telegrams (int)
+ *  10  CRC32 of the telegrams (int)
+ *  14  the telegrams, each of them the location (UTF) and the encoded telegram (short length
+ *      and bytes)
+ * </pre>
+ * Before a valid file is replaced it is kept as the last known good one, which is read when the
+ * current file turns out to be damaged.
+ *
+ * The telegrams are kept in memory once read, so only the first read touches the file. The file
+ * is written without holding the lock of the telegrams, so reading them never waits for the disk.
+ */
+final class TelegramStore {
+
+    private static final String TAG = TelegramStore.class.getSimpleName();
+
+    static final int MAGIC = 0x53575453; // "SWTS"
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_LENGTH = 14;
+    private static final int MAX_TELEGRAMS = 255;
+
+    private final AtomicFile mFile;
+    private final File mLastKnownGoodFile;
+    // Guarded by this
+    private final Map<String, byte[]> mTelegrams = new LinkedHashMap<>();
+    // Counts the changes of mTelegrams, guarded by this
+    private int mVersion;
+
+    // Held while the files are touched, never together with this
+    private final Object mFileLock = new Object();
+    // true if mFile holds what was read or written last, guarded by mFileLock
+    private boolean mFileValid;
+    // The version in mFile, guarded by mFileLock
+    private int mWrittenVersion;
+
+    TelegramStore(File file, File lastKnownGoodFile) {
+        mFile = new AtomicFile(file);
+        mLastKnownGoodFile = lastKnownGoodFile;
+    }
+
+    /**
+     * Reads the telegrams from the file, or from the last known good one if the file is damaged.
+     *
+     * @return false if neither holds valid telegrams
+     */
+    boolean read() {
+        Map<String, byte[]> telegrams = new LinkedHashMap<>();
+        boolean found = false;
+        synchronized (mFileLock) {
+            mFileValid = false;
+            try {
+                mFileValid = parse(mFile.readFully(), telegrams);
+            } catch (IOException e) {
+                // there is no file yet
+            }
+            found = mFileValid;
+
+            if (!found) {
+                telegrams.clear();
+                try {
+                    found = parse(new AtomicFile(mLastKnownGoodFile).readFully(), telegrams);
+                } catch (IOException e) {
+                    // there is none either
+                }
+                if (found) {
+                    Log.w(TAG, "Damaged telegram file, read the last known good one");
+                } else {
+                    telegrams.clear();
+                }
+            }
+        }
+
+        synchronized (this) {
+            mTelegrams.clear();
+            mTelegrams.putAll(telegrams);
+            mVersion++;
+        }
+        return found;
+    }
+
+    /**
+     * @return the telegram of the location, null if there is none
+     */
+    synchronized WeatherDataTelegram get(String location) {
+        byte[] bytes = mTelegrams.get(location);
+        return bytes == null ? null : WeatherTelegramCodec.decode(bytes);
+    }
+
+    /**
+     * @return true if the telegram of the location is this one, as precisely as it's stored
+     */
+    synchronized boolean contains(String location, WeatherDataTelegram telegram) {
+        return Arrays.equals(mTelegrams.get(location), WeatherTelegramCodec.encode(telegram));
+    }
+
+    /**
+     * Replaces the telegram of the location and writes all of them. The new telegram can be
+     * read before it is written.
+     */
+    void put(String location, WeatherDataTelegram telegram) {
+        byte[] encoded = WeatherTelegramCodec.encode(telegram);
+        byte[] bytes;
+        int version;
+        synchronized (this) {
+            if (!mTelegrams.containsKey(location) && mTelegrams.size() == MAX_TELEGRAMS) {
+                // the oldest location goes
+                mTelegrams.remove(mTelegrams.keySet().iterator().next());
+            }
+            mTelegrams.put(location, encoded);
+            version = ++mVersion;
+            try {
+                // a few dozen bytes in memory
+                bytes = format(mTelegrams);
+            } catch (IOException e) {
+                // only writes into memory
+                throw new IllegalStateException(e);
+            }
+        }
+
+        synchronized (mFileLock) {
+            if (version > mWrittenVersion) {
+                // else a put that came later has written its telegrams, which include this one
+                write(bytes);
+                mWrittenVersion = version;
+            }
+        }
+    }
+
+    private void write(byte[] bytes) {
+        if (mFileValid && !mFile.getBaseFile().renameTo(mLastKnownGoodFile)) {
+            Log.w(TAG, "Couldn't keep the last known good telegram file");
+        }
+        FileOutputStream out = null;
+        try {
+            out = mFile.startWrite();
+            out.write(bytes);
+            mFile.finishWrite(out);
+            mFileValid = true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing the telegram file", e);
+            if (out != null) {
+                mFile.failWrite(out);
+            }
+            mFileValid = false;
+        }
+    }
+
+    static byte[] format(Map<String, byte[]> telegrams) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream payloadOut = new DataOutputStream(payload);
+        for (Map.Entry<String, byte[]> entry : telegrams.entrySet()) {
+            payloadOut.writeUTF(entry.getKey());
+            payloadOut.writeShort(entry.getValue().length);
+            payloadOut.write(entry.getValue());
+        }
+        byte[] payloadBytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payloadBytes);
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream(HEADER_LENGTH + payloadBytes.length);
+        DataOutputStream fileOut = new DataOutputStream(file);
+        fileOut.writeInt(MAGIC);
+        fileOut.writeByte(FORMAT_VERSION);
+        fileOut.writeByte(telegrams.size());
+        fileOut.writeInt(payloadBytes.length);
+        fileOut.writeInt((int) crc.getValue());
+        fileOut.write(payloadBytes);
+        return file.toByteArray();
+    }
+
+    /**
+     * @return false if the bytes aren't a complete file of a known version
+     */
+    static boolean parse(byte[] bytes, Map<String, byte[]> telegrams) {
+        if (bytes.length < HEADER_LENGTH) {
+            return false;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) {
+                return false;
+            }
+            int count = in.readUnsignedByte();
+            int length = in.readInt();
+            int expectedCrc = in.readInt();
+            if (length != bytes.length - HEADER_LENGTH) {
+                return false;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, HEADER_LENGTH, length);
+            if ((int) crc.getValue() != expectedCrc) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                String location = in.readUTF();
+                byte[] telegram = new byte[in.readUnsignedShort()];
+                in.readFully(telegram);
+                telegrams.put(location, telegram);
+            }
+            return true;
+        } catch (IOException e) {
+            // the CRC matched, but the content is not what this version writes
+            return false;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.android.sunshine.app;
+
+import java.text.DateFormat;
+import java.text.DateFormatSymbols;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The time and the date of the watch face as characters, written into buffers that are reused
+ * for every frame, so the text can be drawn with {@link android.graphics.Canvas#drawText(char[],
+ * int, int, float, float, android.graphics.Paint)} without allocating anything.
+ *
+ * The time is written like {@code String.format("%d:%02d", hour, minute)} and the date like
+ * {@link DateFormat#getDateInstance()}, both with the digits of the default locale. The date
+ * pattern of the locale is compiled once; one with fields other than the year, month, day and
+ * weekday is formatted by the {@link DateFormat}, which allocates once a day.
+ */
+final class TimeTextBuffer {
+
+    // What update() found changed
+    static final int TIME_CHANGED = 1;
+    static final int DATE_CHANGED = 2;
+
+    // The kinds of date fields, a field is the kind and its width
+    private static final int FIELD_LITERAL = 0;
+    private static final int FIELD_YEAR = 1;
+    private static final int FIELD_MONTH = 2;
+    private static final int FIELD_MONTH_SHORT = 3;
+    private static final int FIELD_MONTH_LONG = 4;
+    private static final int FIELD_DAY = 5;
+    private static final int FIELD_WEEKDAY_SHORT = 6;
+    private static final int FIELD_WEEKDAY_LONG = 7;
+
+    final char[] time = new char[5];
+    int timeLength;
+    final char[] date = new char[64];
+    int dateLength;
+
+    private int mMinuteOfDay = -1;
+    private int mDay = -1;
+
+    private Locale mLocale;
+    private char mZeroDigit;
+    private DateFormat mDateFormat;
+    // null if the date pattern couldn't be compiled
+    private int[] mFields;
+    private char[][] mLiterals;
+    private char[][] mMonths;
+    private char[][] mShortMonths;
+    private char[][] mWeekdays;
+    private char[][] mShortWeekdays;
+
+    /**
+     * Makes the next update write both texts again, after the time zone changed for example.
+     */
+    void invalidate() {
+        mMinuteOfDay = -1;
+        mDay = -1;
+    }
+
+    /**
+     * Writes the texts for the time of the calendar, if it isn't the one they show already.
+     *
+     * @return {@link #TIME_CHANGED} and {@link #DATE_CHANGED}, or 0 if both are still the same
+     */
+    int update(Calendar calendar) {
+        if (Locale.getDefault() != mLocale) {
+            compile(Locale.getDefault());
+        }
+
+        int changed = 0;
+        int hour = calendar.get(Calendar.HOUR_OF_DAY);
+        int minute = calendar.get(Calendar.MINUTE);
+        int minuteOfDay = hour * 60 + minute;
+        if (minuteOfDay != mMinuteOfDay) {
+            mMinuteOfDay = minuteOfDay;
+            timeLength = 0;
+            if (hour >= 10) {
+                time[timeLength++] = (char) (mZeroDigit + hour / 10);
+            }
+            time[timeLength++] = (char) (mZeroDigit + hour % 10);
+            time[timeLength++] = ':';
+            time[timeLength++] = (char) (mZeroDigit + minute / 10);
+            time[timeLength++] = (char) (mZeroDigit + minute % 10);
+            changed |= TIME_CHANGED;
+        }
+
+        int day = calendar.get(Calendar.YEAR) * 1000 + calendar.get(Calendar.DAY_OF_YEAR);
+        if (day != mDay) {
+            mDay = day;
+            writeDate(calendar);
+            changed |= DATE_CHANGED;
+        }
+        return changed;
+    }
+
+    private void writeDate(Calendar calendar) {
+        if (mFields == null) {
+            mDateFormat.setTimeZone(calendar.getTimeZone());
+            String text = mDateFormat.format(calendar.getTime());
+            dateLength = Math.min(text.length(), date.length);
+            text.getChars(0, dateLength, date, 0);
+            return;
+        }
+
+        dateLength = 0;
+        for (int i = 0; i < mFields.length; i += 2) {
+            int width = mFields[i + 1];
+            switch (mFields[i]) {
+                case FIELD_LITERAL:
+                    appendChars(mLiterals[width]);
+                    break;
+                case FIELD_YEAR:
+                    int year = calendar.get(Calendar.YEAR);
+                    // like SimpleDateFormat, "yy" is the year of the century, else the full year
+                    appendNumber(width == 2 ? year % 100 : year, width == 2 ? 2 : width);
+                    break;
+                case FIELD_MONTH:
+                    appendNumber(calendar.get(Calendar.MONTH) + 1, width);
+                    break;
+                case FIELD_MONTH_SHORT:
+                    appendChars(mShortMonths[calendar.get(Calendar.MONTH)]);
+                    break;
+                case FIELD_MONTH_LONG:
+                    appendChars(mMonths[calendar.get(Calendar.MONTH)]);
+                    break;
+                case FIELD_DAY:
+                    appendNumber(calendar.get(Calendar.DAY_OF_MONTH), width);
+                    break;
+                case FIELD_WEEKDAY_SHORT:
+                    appendChars(mShortWeekdays[calendar.get(Calendar.DAY_OF_WEEK)]);
+                    break;
+                default:
+                    appendChars(mWeekdays[calendar.get(Calendar.DAY_OF_WEEK)]);
+            }
+        }
+    }
+
+    private void appendChars(char[] chars) {
+        int count = Math.min(chars.length, date.length - dateLength);
+        System.arraycopy(chars, 0, date, dateLength, count);
+        dateLength += count;
+    }
+
+    // Writes the number with at least minDigits digits, padded with zeros
+    private void appendNumber(int number, int minDigits) {
+        int digits = 1;
+        for (int n = number / 10; n > 0; n /= 10) {
+            digits++;
+        }
+        digits = Math.min(Math.max(digits, minDigits), date.length - dateLength);
+        for (int i = dateLength + digits - 1; i >= dateLength; i--) {
+            date[i] = (char) (mZeroDigit + number % 10);
+            number /= 10;
+        }
+        dateLength += digits;
+    }
+
+    private void compile(Locale locale) {
+        mLocale = locale;
+        mZeroDigit = DecimalFormatSymbols.getInstance(locale).getZeroDigit();
+        mDateFormat = DateFormat.getDateInstance(DateFormat.DEFAULT, locale);
+
+        DateFormatSymbols symbols = DateFormatSymbols.getInstance(locale);
+        mMonths = toChars(symbols.getMonths());
+        mShortMonths = toChars(symbols.getShortMonths());
+        mWeekdays = toChars(symbols.getWeekdays());
+        mShortWeekdays = toChars(symbols.getShortWeekdays());
+
+        mFields = null;
+        mLiterals = null;
+        if (mDateFormat instanceof SimpleDateFormat) {
+            List<Integer> fields = new ArrayList<>();
+            List<String> literals = new ArrayList<>();
+            if (parse(((SimpleDateFormat) mDateFormat).toPattern(), fields, literals)) {
+                mFields = new int[fields.size()];
+                for (int i = 0; i < mFields.length; i++) {
+                    mFields[i] = fields.get(i);
+                }
+                mLiterals = toChars(literals.toArray(new String[literals.size()]));
+            }
+        }
+        invalidate();
+    }
+
+    /*
+        Splits a SimpleDateFormat pattern into fields. Only the year, the month, the day of the
+        month and the weekday are understood, with quoted and unquoted literals between them.
+     */
+    private static boolean parse(String pattern, List<Integer> fields, List<String> literals) {
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                int end = i + 1;
+                if (end < pattern.length() && pattern.charAt(end) == '\'') {
+                    // '' is a quote
+                    literal.append('\'');
+                    i = end + 1;
+                    continue;
+                }
+                // 'text' is text, with '' as a quote inside of it
+                while (end < pattern.length()) {
+                    if (pattern.charAt(end) == '\'') {
+                        if (end + 1 < pattern.length() && pattern.charAt(end + 1) == '\'') {
+                            literal.append('\'');
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    literal.append(pattern.charAt(end++));
+                }
+                i = end + 1;
+                continue;
+            }
+            if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z')) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+
+            int width = 1;
+            while (i + width < pattern.length() && pattern.charAt(i + width) == c) {
+                width++;
+            }
+            i += width;
+
+            int kind;
+            switch (c) {
+                case 'y':
+                    kind = FIELD_YEAR;
+                    break;
+                case 'M':
+                    kind = width >= 4 ? FIELD_MONTH_LONG
+                            : width == 3 ? FIELD_MONTH_SHORT : FIELD_MONTH;
+                    break;
+                case 'd':
+                    kind = FIELD_DAY;
+                    break;
+                case 'E':
+                    kind = width >= 4 ? FIELD_WEEKDAY_LONG : FIELD_WEEKDAY_SHORT;
+                    break;
+                default:
+                    // stand-alone months, eras and the like are left to the DateFormat
+                    return false;
+            }
+            addLiteral(literal, fields, literals);
+            fields.add(kind);
+            fields.add(width);
+        }
+        addLiteral(literal, fields, literals);
+        return true;
+    }
+
+    private static void addLiteral(StringBuilder literal, List<Integer> fields,
+                                   List<String> literals) {
+        if (literal.length() > 0) {
+            fields.add(FIELD_LITERAL);
+            fields.add(literals.size());
+            literals.add(literal.toString());
+            literal.setLength(0);
+        }
+    }
+
+    private static char[][] toChars(String[] strings) {
+        char[][] chars = new char[strings.length][];
+        for (int i = 0; i < strings.length; i++) {
+            chars[i] = strings[i] == null ? new char[0] : strings[i].toCharArray();
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.android.sunshine.app;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
+
+/**
+ * The weather icons of the watch face, scaled once to the size they are drawn in, so drawing one
+ * is a single {@link Canvas#drawBitmap(Bitmap, float, float, Paint)}.
+ *
+ * Every icon comes in a full color variant, a gray one for ambient mode and a one-bit one for
+ * ambient mode on low-bit displays, which has neither colors nor anti-aliasing. The variants are
+ * made on first use, for every size and for square and round screens separately, and are kept
+ * until {@link #evictAll()}. Conditions that share an icon share its bitmaps.
+ *
+ * Only to be used on the main thread.
+ */
+final class WeatherIconCache {
+
+    static final int VARIANT_INTERACTIVE = 0;
+    static final int VARIANT_AMBIENT = 1;
+    static final int VARIANT_LOW_BIT = 2;
+    private static final int VARIANT_COUNT = 3;
+
+    // A pixel of the one-bit variant is set if it is at least this opaque
+    private static final int LOW_BIT_THRESHOLD = 128;
+
+    private final Resources mResources;
+    private final Resources.Theme mTheme;
+    private final int mLowBitColor;
+    // By size, the variants by icon resource, for square screens first and round ones after them
+    private final SparseArray<SparseArray<Bitmap[]>> mBitmaps = new SparseArray<>();
+
+    /**
+     * @param lowBitColor the color of the one-bit variant, which is the silhouette of the icon
+     */
+    WeatherIconCache(Resources resources, Resources.Theme theme, int lowBitColor) {
+        mResources = resources;
+        mTheme = theme;
+        mLowBitColor = lowBitColor;
+    }
+
+    /**
+     * @param iconResource the icon of the condition
+     * @param size the width and height to draw the icon with, in pixels
+     * @param round true for round screens
+     * @param variant {@link #VARIANT_INTERACTIVE}, {@link #VARIANT_AMBIENT} or
+     *                {@link #VARIANT_LOW_BIT}
+     */
+    Bitmap get(int iconResource, int size, boolean round, int variant) {
+        SparseArray<Bitmap[]> sized = mBitmaps.get(size);
+        if (sized == null) {
+            sized = new SparseArray<>();
+            mBitmaps.put(size, sized);
+        }
+        Bitmap[] bitmaps = sized.get(iconResource);
+        if (bitmaps == null) {
+            bitmaps = new Bitmap[2 * VARIANT_COUNT];
+            sized.put(iconResource, bitmaps);
+        }
+        int index = (round ? VARIANT_COUNT : 0) + variant;
+        Bitmap bitmap = bitmaps[index];
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        if (variant == VARIANT_INTERACTIVE) {
+            bitmap = render(iconResource, size);
+        } else {
+            Bitmap interactive = get(iconResource, size, round, VARIANT_INTERACTIVE);
+            bitmap = variant == VARIANT_AMBIENT
+                    ? toGray(interactive) : toOneBit(interactive, mLowBitColor);
+        }
+        bitmaps[index] = bitmap;
+        return bitmap;
+    }
+
+    /**
+     * Drops all bitmaps, after the configuration changed for example.
+     */
+    void evictAll() {
+        for (int i = 0; i < mBitmaps.size(); i++) {
+            SparseArray<Bitmap[]> sized = mBitmaps.valueAt(i);
+            for (int j = 0; j < sized.size(); j++) {
+                for (Bitmap bitmap : sized.valueAt(j)) {
+                    if (bitmap != null) {
+                        bitmap.recycle();
+                    }
+                }
+            }
+        }
+        mBitmaps.clear();
+    }
+
+    private Bitmap render(int iconResource, int size) {
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Drawable drawable = mResources.getDrawable(iconResource, mTheme);
+        if (drawable != null) {
+            drawable.setBounds(0, 0, size, size);
+            drawable.draw(new Canvas(bitmap));
+        }
+        return bitmap;
+    }
+
+    private static Bitmap toGray(Bitmap source) {
+        Bitmap bitmap = Bitmap.createBitmap(source.getWidth(), source.getHeight(),
+                Bitmap.Config.ARGB_8888);
+        ColorMatrix matrix = new ColorMatrix();
+        matrix.setSaturation(0);
+        Paint paint = new Paint();
+        paint.setColorFilter(new ColorMatrixColorFilter(matrix));
+        new Canvas(bitmap).drawBitmap(source, 0, 0, paint);
+        return bitmap;
+    }
+
+    private static Bitmap toOneBit(Bitmap source, int color) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] pixels = new int[width * height];
+        source.getPixels(pixels, 0, width, 0, 0, width, height);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = pixels[i] >>> 24 >= LOW_BIT_THRESHOLD ? color : 0;
+        }
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    }
+}